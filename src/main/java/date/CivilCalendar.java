@@ -0,0 +1,109 @@
+package date;
+
+/**
+ * 公历(外推格里高利历)的纯整数日期运算, 不创建任何对象。
+ * 年月日以一个long打包返回: 年 << 16 | 月 << 8 | 日
+ */
+final class CivilCalendar {
+
+    /**
+     * 一天的毫秒数
+     */
+    static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * 0000-03-01 到 1970-01-01 的天数
+     */
+    private static final long DAYS_0000_TO_1970 = 719468L;
+
+    /**
+     * 400年一个周期的天数
+     */
+    private static final long DAYS_PER_CYCLE = 146097L;
+
+    private CivilCalendar() {
+    }
+
+    /**
+     * 功能：年月日转换为距1970-01-01的天数
+     *
+     * @param year  年
+     * @param month 月, 1-12
+     * @param day   日, 1-31
+     * @return 距1970-01-01的天数
+     */
+    static long daysFromCivil(long year, int month, int day) {
+        //以3月为一年的开始, 使闰日落在年末
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_CYCLE + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * 功能：距1970-01-01的天数转换为打包的年月日
+     *
+     * @param epochDay 距1970-01-01的天数
+     * @return 打包的年月日
+     */
+    static long civilFromDays(long epochDay) {
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, DAYS_PER_CYCLE);
+        long dayOfEra = z - era * DAYS_PER_CYCLE;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return pack(year, month, day);
+    }
+
+    static long pack(long year, int month, int day) {
+        return (year << 16) | (month << 8) | day;
+    }
+
+    static long year(long packed) {
+        return packed >> 16;
+    }
+
+    static int month(long packed) {
+        return (int) (packed >> 8) & 0xFF;
+    }
+
+    static int day(long packed) {
+        return (int) packed & 0xFF;
+    }
+
+    static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * 功能：获取某年某月的天数
+     *
+     * @param year  年
+     * @param month 月, 1-12
+     * @return 当月天数
+     */
+    static int lengthOfMonth(long year, int month) {
+        if (month == 2) {
+            return isLeapYear(year) ? 29 : 28;
+        }
+        //大小月交替, 8月起奇偶翻转
+        return 30 + ((month + (month >> 3)) & 1);
+    }
+
+    /**
+     * 功能：根据天数获取星期, 1为星期一, 7为星期日
+     *
+     * @param epochDay 距1970-01-01的天数
+     * @return 星期
+     */
+    static int dayOfWeek(long epochDay) {
+        //1970-01-01为星期四
+        return (int) Math.floorMod(epochDay + 3, 7L) + 1;
+    }
+}
@@ -0,0 +1,448 @@
+package date;
+
+import java.nio.charset.StandardCharsets;
+
+import enums.DatePattern;
+import instrumentation.Instrumentation;
+import instrumentation.Instrumentation.Operation;
+
+/**
+ * 固定格式日期的快速解析与格式化, 直接读写CharSequence/byte[]区间, 不使用正则与中间对象, 线程安全。
+ * 年份范围为0000-9999, 无偏移的时间按DateUtils当前时钟的时区处理, 夏令时重叠时段取标准时间。
+ */
+public final class DateFormatUtils {
+
+    /**
+     * 解析失败的内部标记值, 合法结果不会取到此值
+     */
+    private static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * 各格式最长的输出长度: yyyy-MM-ddTHH:mm:ss.SSS+hh:mm:ss
+     */
+    private static final int MAX_LENGTH = 32;
+
+    private DateFormatUtils() {
+    }
+
+    /**
+     * 功能：按指定格式解析日期字符串
+     * 示例：DateFormatUtils.parse("2020-04-23", DatePattern.DATE) → 当前时区2020-04-23 00:00:00的毫秒时间戳
+     *
+     * @param text    日期字符串
+     * @param pattern 格式
+     * @return 毫秒时间戳
+     */
+    public static long parse(CharSequence text, DatePattern pattern) {
+        return parse(text, 0, text.length(), pattern);
+    }
+
+    /**
+     * 功能：按指定格式解析字符序列中[start, end)区间的日期
+     *
+     * @param text    字符序列
+     * @param start   起始位置(含)
+     * @param end     结束位置(不含)
+     * @param pattern 格式
+     * @return 毫秒时间戳
+     */
+    public static long parse(CharSequence text, int start, int end, DatePattern pattern) {
+        checkRange(start, end, text.length());
+        long result = parse(text, null, start, end, pattern);
+        if (result == INVALID) {
+            throw new IllegalArgumentException("日期格式不正确, 应为" + pattern.getPattern() + ": " + text.subSequence(start, end));
+        }
+        return result;
+    }
+
+    /**
+     * 功能：按指定格式解析字节数组中[start, end)区间的ASCII日期
+     * 场景：导入文件时直接从读缓冲区解析，不必先转换为字符串
+     *
+     * @param bytes   字节数组
+     * @param start   起始位置(含)
+     * @param end     结束位置(不含)
+     * @param pattern 格式
+     * @return 毫秒时间戳
+     */
+    public static long parse(byte[] bytes, int start, int end, DatePattern pattern) {
+        checkRange(start, end, bytes.length);
+        long result = parse(null, bytes, start, end, pattern);
+        if (result == INVALID) {
+            throw new IllegalArgumentException("日期格式不正确, 应为" + pattern.getPattern() + ": "
+                    + new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+        }
+        return result;
+    }
+
+    /**
+     * 功能：按指定格式解析日期，格式不正确时返回默认值而不抛出异常
+     *
+     * @param text         字符序列
+     * @param start        起始位置(含)
+     * @param end          结束位置(不含)
+     * @param pattern      格式
+     * @param defaultValue 解析失败时的返回值
+     * @return 毫秒时间戳或默认值
+     */
+    public static long tryParse(CharSequence text, int start, int end, DatePattern pattern, long defaultValue) {
+        if (text == null || start < 0 || end > text.length() || start > end) {
+            return defaultValue;
+        }
+        long result = parse(text, null, start, end, pattern);
+        return result == INVALID ? defaultValue : result;
+    }
+
+    /**
+     * 功能：按指定格式解析字节数组中的ASCII日期，格式不正确时返回默认值而不抛出异常
+     *
+     * @param bytes        字节数组
+     * @param start        起始位置(含)
+     * @param end          结束位置(不含)
+     * @param pattern      格式
+     * @param defaultValue 解析失败时的返回值
+     * @return 毫秒时间戳或默认值
+     */
+    public static long tryParse(byte[] bytes, int start, int end, DatePattern pattern, long defaultValue) {
+        if (bytes == null || start < 0 || end > bytes.length || start > end) {
+            return defaultValue;
+        }
+        long result = parse(null, bytes, start, end, pattern);
+        return result == INVALID ? defaultValue : result;
+    }
+
+    /**
+     * 功能：检查字符串是否符合指定格式且为合法日期
+     * 示例：
+     * DateFormatUtils.isValid("2020-02-29", DatePattern.DATE) -> true
+     * DateFormatUtils.isValid("2019-02-29", DatePattern.DATE) -> false
+     *
+     * @param text    日期字符串
+     * @param pattern 格式
+     * @return 是否合法
+     */
+    public static boolean isValid(CharSequence text, DatePattern pattern) {
+        return text != null && parse(text, null, 0, text.length(), pattern) != INVALID;
+    }
+
+    /**
+     * 功能：按指定格式格式化毫秒时间戳
+     * 示例：DateFormatUtils.format(millis, DatePattern.DATE_TIME) → 2020-04-23 08:30:16
+     *
+     * @param epochMilli 毫秒时间戳
+     * @param pattern    格式
+     * @return 日期字符串
+     */
+    public static String format(long epochMilli, DatePattern pattern) {
+        char[] buffer = new char[MAX_LENGTH];
+        int length = format(epochMilli, pattern, buffer, null, 0);
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * 功能：按指定格式格式化毫秒时间戳，写入字符数组
+     *
+     * @param epochMilli 毫秒时间戳
+     * @param pattern    格式
+     * @param dest       目标数组
+     * @param offset     写入的起始位置
+     * @return 写入的字符数
+     */
+    public static int format(long epochMilli, DatePattern pattern, char[] dest, int offset) {
+        return format(epochMilli, pattern, dest, null, offset);
+    }
+
+    /**
+     * 功能：按指定格式格式化毫秒时间戳，以ASCII写入字节数组
+     * 场景：导出文件时直接写入写缓冲区
+     *
+     * @param epochMilli 毫秒时间戳
+     * @param pattern    格式
+     * @param dest       目标数组
+     * @param offset     写入的起始位置
+     * @return 写入的字节数
+     */
+    public static int format(long epochMilli, DatePattern pattern, byte[] dest, int offset) {
+        return format(epochMilli, pattern, null, dest, offset);
+    }
+
+    /**
+     * 功能：按指定格式格式化毫秒时间戳，追加到StringBuilder
+     *
+     * @param epochMilli 毫秒时间戳
+     * @param pattern    格式
+     * @param dest       目标StringBuilder
+     * @return 目标StringBuilder
+     */
+    public static StringBuilder format(long epochMilli, DatePattern pattern, StringBuilder dest) {
+        char[] buffer = new char[MAX_LENGTH];
+        int length = format(epochMilli, pattern, buffer, null, 0);
+        return dest.append(buffer, 0, length);
+    }
+
+    /**
+     * 解析的公共入口, chars与bytes只有一个不为空, 失败返回INVALID
+     */
+    private static long parse(CharSequence chars, byte[] bytes, int start, int end, DatePattern pattern) {
+        long begin = Instrumentation.begin();
+        long result = parseFields(chars, bytes, start, end, pattern);
+        Instrumentation.end(Operation.DATE_PARSE, begin, end - start);
+        return result;
+    }
+
+    private static long parseFields(CharSequence chars, byte[] bytes, int start, int end, DatePattern pattern) {
+        int length = end - start;
+        switch (pattern) {
+            case DATE:
+                if (length != 10 || charAt(chars, bytes, start + 4) != '-' || charAt(chars, bytes, start + 7) != '-') {
+                    return INVALID;
+                }
+                return toEpochMilli(digits(chars, bytes, start, 4), digits(chars, bytes, start + 5, 2),
+                        digits(chars, bytes, start + 8, 2), 0, 0, 0, 0, false, 0);
+            case COMPACT_DATE:
+                if (length != 8) {
+                    return INVALID;
+                }
+                return toEpochMilli(digits(chars, bytes, start, 4), digits(chars, bytes, start + 4, 2),
+                        digits(chars, bytes, start + 6, 2), 0, 0, 0, 0, false, 0);
+            case DATE_TIME:
+            case DATE_TIME_MILLIS:
+                int expected = pattern == DatePattern.DATE_TIME ? 19 : 23;
+                if (length != expected || charAt(chars, bytes, start + 4) != '-' || charAt(chars, bytes, start + 7) != '-'
+                        || charAt(chars, bytes, start + 10) != ' ' || charAt(chars, bytes, start + 13) != ':'
+                        || charAt(chars, bytes, start + 16) != ':') {
+                    return INVALID;
+                }
+                int millis = 0;
+                if (pattern == DatePattern.DATE_TIME_MILLIS) {
+                    if (charAt(chars, bytes, start + 19) != '.') {
+                        return INVALID;
+                    }
+                    millis = digits(chars, bytes, start + 20, 3);
+                }
+                return toEpochMilli(digits(chars, bytes, start, 4), digits(chars, bytes, start + 5, 2),
+                        digits(chars, bytes, start + 8, 2), digits(chars, bytes, start + 11, 2),
+                        digits(chars, bytes, start + 14, 2), digits(chars, bytes, start + 17, 2), millis, false, 0);
+            default:
+                return parseIso(chars, bytes, start, end);
+        }
+    }
+
+    /**
+     * 解析ISO-8601日期时间: yyyy-MM-ddTHH:mm[:ss[.S{1,9}]][Z|±hh[[:]mm[[:]ss]]]
+     */
+    private static long parseIso(CharSequence chars, byte[] bytes, int start, int end) {
+        if (end - start < 16 || charAt(chars, bytes, start + 4) != '-' || charAt(chars, bytes, start + 7) != '-'
+                || charAt(chars, bytes, start + 10) != 'T' || charAt(chars, bytes, start + 13) != ':') {
+            return INVALID;
+        }
+        int position = start + 16;
+        int second = 0;
+        int millis = 0;
+        if (position < end && charAt(chars, bytes, position) == ':') {
+            if (position + 3 > end) {
+                return INVALID;
+            }
+            second = digits(chars, bytes, position + 1, 2);
+            position += 3;
+            if (position < end && charAt(chars, bytes, position) == '.') {
+                //小数秒为1-9位, 只保留到毫秒
+                position++;
+                int digitCount = 0;
+                while (position < end && digitCount < 9) {
+                    int digit = charAt(chars, bytes, position) - '0';
+                    if (digit < 0 || digit > 9) {
+                        break;
+                    }
+                    if (digitCount < 3) {
+                        millis = millis * 10 + digit;
+                    }
+                    digitCount++;
+                    position++;
+                }
+                if (digitCount == 0) {
+                    return INVALID;
+                }
+                for (int i = digitCount; i < 3; i++) {
+                    millis *= 10;
+                }
+            }
+        }
+        boolean hasOffset = false;
+        int offsetMillis = 0;
+        if (position < end) {
+            char sign = charAt(chars, bytes, position);
+            if (sign == 'Z') {
+                hasOffset = true;
+                position++;
+            } else if (sign == '+' || sign == '-') {
+                int offset = parseOffset(chars, bytes, position + 1, end);
+                if (offset < 0) {
+                    return INVALID;
+                }
+                hasOffset = true;
+                offsetMillis = sign == '-' ? -offset : offset;
+                position = end;
+            } else {
+                return INVALID;
+            }
+        }
+        if (position != end) {
+            return INVALID;
+        }
+        return toEpochMilli(digits(chars, bytes, start, 4), digits(chars, bytes, start + 5, 2),
+                digits(chars, bytes, start + 8, 2), digits(chars, bytes, start + 11, 2),
+                digits(chars, bytes, start + 14, 2), second, millis, hasOffset, offsetMillis);
+    }
+
+    /**
+     * 解析偏移hh、hhmm、hh:mm、hh:mm:ss, 返回偏移毫秒数, 失败返回-1
+     */
+    private static int parseOffset(CharSequence chars, byte[] bytes, int start, int end) {
+        int length = end - start;
+        int hours;
+        int minutes = 0;
+        int seconds = 0;
+        if (length == 2) {
+            hours = digits(chars, bytes, start, 2);
+        } else if (length == 4) {
+            hours = digits(chars, bytes, start, 2);
+            minutes = digits(chars, bytes, start + 2, 2);
+        } else if (length == 5 && charAt(chars, bytes, start + 2) == ':') {
+            hours = digits(chars, bytes, start, 2);
+            minutes = digits(chars, bytes, start + 3, 2);
+        } else if (length == 8 && charAt(chars, bytes, start + 2) == ':' && charAt(chars, bytes, start + 5) == ':') {
+            hours = digits(chars, bytes, start, 2);
+            minutes = digits(chars, bytes, start + 3, 2);
+            seconds = digits(chars, bytes, start + 6, 2);
+        } else {
+            return -1;
+        }
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return -1;
+        }
+        int offset = (hours * 3600 + minutes * 60 + seconds) * 1000;
+        return offset > 18 * 3600 * 1000 ? -1 : offset;
+    }
+
+    /**
+     * 校验各字段并换算为毫秒时间戳, 任一字段为负数(数字不合法)或超出范围返回INVALID
+     */
+    private static long toEpochMilli(int year, int month, int day, int hour, int minute, int second, int millis,
+                                     boolean hasOffset, int offsetMillis) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > CivilCalendar.lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return INVALID;
+        }
+        long local = CivilCalendar.daysFromCivil(year, month, day) * CivilCalendar.MILLIS_PER_DAY
+                + hour * 3600000L + minute * 60000L + second * 1000L + millis;
+        return hasOffset ? local - offsetMillis : DateUtils.getZoneTable().localToUtc(local);
+    }
+
+    /**
+     * 读取count位十进制数字, 含非数字字符时返回-1
+     */
+    private static int digits(CharSequence chars, byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = charAt(chars, bytes, i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static char charAt(CharSequence chars, byte[] bytes, int index) {
+        return bytes != null ? (char) (bytes[index] & 0xFF) : chars.charAt(index);
+    }
+
+    /**
+     * 格式化的公共入口, chars与bytes只有一个不为空
+     */
+    private static int format(long epochMilli, DatePattern pattern, char[] chars, byte[] bytes, int offset) {
+        long begin = Instrumentation.begin();
+        int length = formatFields(epochMilli, pattern, chars, bytes, offset);
+        Instrumentation.end(Operation.DATE_FORMAT, begin, length);
+        return length;
+    }
+
+    private static int formatFields(long epochMilli, DatePattern pattern, char[] chars, byte[] bytes, int offset) {
+        ZoneOffsetTable table = DateUtils.getZoneTable();
+        int offsetMillis = pattern == DatePattern.ISO_INSTANT ? 0 : table.offsetOfUtc(epochMilli);
+        long local = epochMilli + offsetMillis;
+        long epochDay = Math.floorDiv(local, CivilCalendar.MILLIS_PER_DAY);
+        int timeOfDay = (int) Math.floorMod(local, CivilCalendar.MILLIS_PER_DAY);
+        long date = CivilCalendar.civilFromDays(epochDay);
+        long year = CivilCalendar.year(date);
+        if (year < 0 || year > 9999) {
+            throw new IllegalArgumentException("年份超出0000-9999的范围: " + year);
+        }
+        int position = offset;
+        position = putDigits(chars, bytes, position, (int) year, 4);
+        if (pattern != DatePattern.COMPACT_DATE) {
+            position = put(chars, bytes, position, '-');
+        }
+        position = putDigits(chars, bytes, position, CivilCalendar.month(date), 2);
+        if (pattern != DatePattern.COMPACT_DATE) {
+            position = put(chars, bytes, position, '-');
+        }
+        position = putDigits(chars, bytes, position, CivilCalendar.day(date), 2);
+        if (pattern == DatePattern.DATE || pattern == DatePattern.COMPACT_DATE) {
+            return position - offset;
+        }
+        position = put(chars, bytes, position, pattern == DatePattern.DATE_TIME || pattern == DatePattern.DATE_TIME_MILLIS ? ' ' : 'T');
+        position = putDigits(chars, bytes, position, timeOfDay / 3600000, 2);
+        position = put(chars, bytes, position, ':');
+        position = putDigits(chars, bytes, position, timeOfDay / 60000 % 60, 2);
+        position = put(chars, bytes, position, ':');
+        position = putDigits(chars, bytes, position, timeOfDay / 1000 % 60, 2);
+        if (pattern == DatePattern.DATE_TIME) {
+            return position - offset;
+        }
+        position = put(chars, bytes, position, '.');
+        position = putDigits(chars, bytes, position, timeOfDay % 1000, 3);
+        if (pattern == DatePattern.DATE_TIME_MILLIS) {
+            return position - offset;
+        }
+        if (offsetMillis == 0) {
+            position = put(chars, bytes, position, 'Z');
+            return position - offset;
+        }
+        int offsetSeconds = Math.abs(offsetMillis) / 1000;
+        position = put(chars, bytes, position, offsetMillis < 0 ? '-' : '+');
+        position = putDigits(chars, bytes, position, offsetSeconds / 3600, 2);
+        position = put(chars, bytes, position, ':');
+        position = putDigits(chars, bytes, position, offsetSeconds / 60 % 60, 2);
+        //地方平时等偏移带秒时才输出秒
+        if (offsetSeconds % 60 != 0) {
+            position = put(chars, bytes, position, ':');
+            position = putDigits(chars, bytes, position, offsetSeconds % 60, 2);
+        }
+        return position - offset;
+    }
+
+    private static int putDigits(char[] chars, byte[] bytes, int position, int value, int count) {
+        for (int i = position + count - 1; i >= position; i--) {
+            put(chars, bytes, i, (char) ('0' + value % 10));
+            value /= 10;
+        }
+        return position + count;
+    }
+
+    private static int put(char[] chars, byte[] bytes, int position, char value) {
+        if (bytes != null) {
+            bytes[position] = (byte) value;
+        } else {
+            chars[position] = value;
+        }
+        return position + 1;
+    }
+
+    private static void checkRange(int start, int end, int length) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+    }
+}
@@ -1,51 +1,123 @@
 package date;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import enums.Season;
+import instrumentation.Instrumentation;
+import instrumentation.Instrumentation.Operation;
 
 public final class DateUtils {
 
+    /**
+     * 人性化时间中超出相对时间范围后使用的日期格式, DateTimeFormatter不可变且线程安全, 可全局共享
+     */
+    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * 一分钟的毫秒数
+     */
+    private static final long MILLIS_PER_MINUTE = 60000L;
+
+    /**
+     * 一小时的毫秒数
+     */
+    private static final long MILLIS_PER_HOUR = 3600000L;
+
+    /**
+     * 一天的毫秒数
+     */
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * 显示“x天前”的上限, 与原实现保持一致(原实现中30天的int运算溢出后得到此值, 约19.7天)
+     */
+    private static final long DISPLAY_DAY_LIMIT = 1702967296L;
+
+    /**
+     * 批量计算时超过此数量才拆分到多个CPU核心并行处理
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * 月份(1-12)对应的季节, 下标0不使用
+     */
+    private static final Season[] SEASON_OF_MONTH = {null,
+            Season.WINTER, Season.WINTER, Season.SPRING, Season.SPRING, Season.SPRING, Season.SUMMER,
+            Season.SUMMER, Season.SUMMER, Season.AUTUMN, Season.AUTUMN, Season.AUTUMN, Season.WINTER};
+
+    /**
+     * 当前使用的时钟及其时区的偏移表, 其时区即为本类所有计算使用的时区; 默认为系统时钟与系统默认时区
+     */
+    private static volatile ClockZone clockZone = new ClockZone(Clock.systemDefaultZone());
+
+    private DateUtils() {
+    }
+
+    /**
+     * 功能：设置本类使用的时钟，时钟所带的时区同时作为计算时区
+     * 场景：单元测试或压测时注入固定时钟，或统一指定业务时区
+     *
+     * @param newClock 时钟，不能为空
+     */
+    public static void setClock(Clock newClock) {
+        if (newClock == null) {
+            throw new IllegalArgumentException("时钟不能为空!");
+        }
+        clockZone = new ClockZone(newClock);
+    }
+
+    /**
+     * 功能：获取本类当前使用的时钟
+     *
+     * @return 时钟
+     */
+    public static Clock getClock() {
+        return clockZone.clock;
+    }
+
+    /**
+     * 功能：获取当前时钟时区对应的偏移表，供同包的格式化工具使用
+     *
+     * @return 偏移表
+     */
+    static ZoneOffsetTable getZoneTable() {
+        return clockZone.table;
+    }
+
     /**
      * 功能：根据生日计算年龄
-     * 示例：现在是2020-4-23，如果生日是2020-5-20，那结果是19
+     * 示例：现在是2020-4-23，如果生日是2000-5-20，那结果是19
      *
      * @param birthday 生日
      * @return 年龄
      */
     public static int getAge(Date birthday) {
-        //初始化年龄
-        int age = 0;
-        Calendar now = Calendar.getInstance();
-        now.setTime(new Date());
-        ////出生日期晚于当前时间, 不进行计算
-        if (now.before(birthday)) {
+        Clock current = clockZone.clock;
+        //出生日期晚于当前时间, 不进行计算
+        if (birthday.getTime() > current.millis()) {
             throw new IllegalArgumentException("出生日期晚于当前时间!");
         }
-        //当前年份
-        int yearNow = now.get(Calendar.YEAR);
-        //当前月份
-        int monthNow = now.get(Calendar.MONTH);
-        //当前日期
-        int dayOfMonthNow = now.get(Calendar.DAY_OF_MONTH);
-        now.setTime(birthday);
-        int yearBirth = now.get(Calendar.YEAR);
-        int monthBirth = now.get(Calendar.MONTH);
-        int dayOfMonthBirth = now.get(Calendar.DAY_OF_MONTH);
+        LocalDate now = LocalDate.now(current);
+        LocalDate birth = Instant.ofEpochMilli(birthday.getTime()).atZone(current.getZone()).toLocalDate();
         //计算通过年获取的年龄
-        age = yearNow - yearBirth;
-        if (monthNow <= monthBirth) {
-            if (monthNow == monthBirth) {
-                //当前日期在生日之前，年龄减一
-                if (dayOfMonthNow < dayOfMonthBirth) {
-                    age--;
-                }
-            } else {
-                //月份相同,但当前月份在生日之前，年龄减一
-                age--;
-            }
+        int age = now.getYear() - birth.getYear();
+        //当前月份在生日之前, 或月份相同但当前日期在生日之前, 年龄减一
+        if (now.getMonthValue() < birth.getMonthValue()
+                || (now.getMonthValue() == birth.getMonthValue() && now.getDayOfMonth() < birth.getDayOfMonth())) {
+            age--;
         }
         return age;
     }
@@ -54,48 +126,26 @@ public final class DateUtils {
      * 功能：给定时间对象，获取该时间的月初1日0时0分0秒0毫秒
      * 示例：2018-11-11 08:30:16 → 2018-11-01 00:00:00
      * 使用场景：可用在数据库里查询某月的时间范围
+     * 说明：结果落在夏令时重叠区间时按标准时间计算，与原Calendar实现一致
      *
      * @param src 源时间
      * @return 月初时间
      */
     public static Date getFirstDayOfMonth(Date src) {
-        Calendar firstDayOfMonth = Calendar.getInstance();
-        firstDayOfMonth.setTime(src);
-        //设置为1号,当前日期既为本月第一天
-        firstDayOfMonth.set(Calendar.DAY_OF_MONTH, 1);
-        //将小时至0
-        firstDayOfMonth.set(Calendar.HOUR_OF_DAY, 0);
-        //将分钟至0
-        firstDayOfMonth.set(Calendar.MINUTE, 0);
-        //将秒至0
-        firstDayOfMonth.set(Calendar.SECOND, 0);
-        //将毫秒至0
-        firstDayOfMonth.set(Calendar.MILLISECOND, 0);
-        return firstDayOfMonth.getTime();
-    }
-
-    /**
-     * 功能：给定时间对象，获取该时间的月末最后一天的23时23分59秒999毫秒
-     * 示例：2018-11-11 08:30:16 → 2018-11-30 23:23:59
+        return new Date(getFirstDayOfMonth(src.getTime()));
+    }
+
+    /**
+     * 功能：给定时间对象，获取该时间的月末最后一天的23时59分59秒999毫秒
+     * 示例：2018-11-11 08:30:16 → 2018-11-30 23:59:59
      * 使用场景：可用在数据库里查询某月的时间范围
+     * 说明：结果落在夏令时重叠区间时按标准时间计算，与原Calendar实现一致
      *
      * @param src 源时间
      * @return 月末时间
      */
     public static Date getLastDayOfMonth(Date src) {
-        Calendar larstDayOfMonth = Calendar.getInstance();
-        larstDayOfMonth.setTime(src);
-        //设置为当月最后一天
-        larstDayOfMonth.set(Calendar.DAY_OF_MONTH, larstDayOfMonth.getActualMaximum(Calendar.DAY_OF_MONTH));
-        //将小时至23
-        larstDayOfMonth.set(Calendar.HOUR_OF_DAY, 23);
-        //将分钟至59
-        larstDayOfMonth.set(Calendar.MINUTE, 59);
-        //将秒至59
-        larstDayOfMonth.set(Calendar.SECOND, 59);
-        //将毫秒至999
-        larstDayOfMonth.set(Calendar.MILLISECOND, 999);
-        return larstDayOfMonth.getTime();
+        return new Date(getLastDayOfMonth(src.getTime()));
     }
 
     /**
@@ -107,85 +157,471 @@ public final class DateUtils {
      * @return 新日期
      */
     public static Date offsetDate(int days) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(new Date());
-        cal.add(Calendar.DAY_OF_MONTH, days);
-        return cal.getTime();
+        return Date.from(ZonedDateTime.now(clockZone.clock).plusDays(days).toInstant());
     }
 
     /**
      * 功能：获取当前季节，如春季、夏季、秋季、冬季。
+     * 说明：3-5月为春季，6-8月为夏季，9-11月为秋季，12-2月为冬季
      *
      * @return 季节
      */
     public static Season getCurrentSeason() {
-        //创建Calendar类来获取时间信息
-        Calendar calendar = Calendar.getInstance();
-        //获取当前时间
-        calendar.setTime(new Date());
-        //判断当前时间月份
-        switch (calendar.get(Calendar.MONTH)) {
-            case 3:
-            case 4:
-            case 5:
-                return Season.SPRING;
-            case 6:
-            case 7:
-            case 8:
-                return Season.SUMMER;
-            case 9:
-            case 10:
-            case 11:
-                return Season.AUTUMN;
-            case 12:
-            case 1:
-            case 2:
-                return Season.WINTER;
-            default:
-                return null;
-        }
-    }
-
-    /**
-     * 功能：获取人性化时间，例如5分钟之内则显示“刚刚”，其它显示16分钟前、2小时前、3天前、4月前、5年前等
+        return getSeason(clockZone.clock.millis());
+    }
+
+    /**
+     * 功能：获取毫秒时间戳所在的季节
+     *
+     * @param epochMilli 毫秒时间戳
+     * @return 季节
+     */
+    public static Season getSeason(long epochMilli) {
+        long date = CivilCalendar.civilFromDays(Math.floorDiv(clockZone.table.utcToLocal(epochMilli), CivilCalendar.MILLIS_PER_DAY));
+        return SEASON_OF_MONTH[CivilCalendar.month(date)];
+    }
+
+    /**
+     * 功能：获取人性化时间，例如1分钟之内则显示“刚刚”，其它显示16分钟前、2小时前、3天前，更早的显示日期
      *
      * @param date 源时间。
      * @return 人性化时间
      */
     public static String getDisplayTime(Date date) {
-        //创建空字符串用来存储人性化时间信息
-        String r = "";
         //判断日期是否为空
         if (date == null) {
-            return r;
+            return "";
+        }
+        Clock current = clockZone.clock;
+        long begin = Instrumentation.begin();
+        String display = displayTime(current.millis(), date.getTime(), current.getZone());
+        Instrumentation.end(Operation.DATE_DISPLAY, begin, 0);
+        return display;
+    }
+
+    /**
+     * 功能：获取人性化时间，参数为毫秒时间戳
+     *
+     * @param epochMilli 源时间的毫秒时间戳
+     * @return 人性化时间
+     */
+    public static String getDisplayTime(long epochMilli) {
+        Clock current = clockZone.clock;
+        long begin = Instrumentation.begin();
+        String display = displayTime(current.millis(), epochMilli, current.getZone());
+        Instrumentation.end(Operation.DATE_DISPLAY, begin, 0);
+        return display;
+    }
+
+    /**
+     * 功能：批量获取人性化时间，整批共用同一个当前时间
+     * 场景：渲染一页动态/评论列表
+     *
+     * @param epochMillis 源时间的毫秒时间戳数组
+     * @return 与参数一一对应的人性化时间
+     */
+    public static String[] getDisplayTimes(long[] epochMillis) {
+        Clock current = clockZone.clock;
+        long now = current.millis();
+        ZoneId zone = current.getZone();
+        long begin = Instrumentation.begin();
+        String[] result = new String[epochMillis.length];
+        for (int i = 0; i < epochMillis.length; i++) {
+            result[i] = displayTime(now, epochMillis[i], zone);
         }
-        //获取当前时间的秒数
-        long nowTimeLong = System.currentTimeMillis();
-        //获取传入时间的秒数
-        long dateTimeLong = date.getTime();
+        Instrumentation.end(Operation.DATE_DISPLAY, begin, 0);
+        return result;
+    }
+
+    /**
+     * 功能：批量获取人性化时间，整批共用同一个当前时间，空元素返回空字符串
+     *
+     * @param dates 源时间集合
+     * @return 与参数顺序一致的人性化时间
+     */
+    public static List<String> getDisplayTimes(Collection<? extends Date> dates) {
+        Clock current = clockZone.clock;
+        long now = current.millis();
+        ZoneId zone = current.getZone();
+        long begin = Instrumentation.begin();
+        List<String> result = new ArrayList<>(dates.size());
+        for (Date date : dates) {
+            result.add(date == null ? "" : displayTime(now, date.getTime(), zone));
+        }
+        Instrumentation.end(Operation.DATE_DISPLAY, begin, 0);
+        return result;
+    }
+
+    /**
+     * 功能：给定毫秒时间戳，获取该时间的月初1日0时0分0秒0毫秒，不创建任何对象
+     * 说明：本类所有毫秒时间戳运算均按外推格里高利历计算，1582-10-15之前与Calendar的儒略历结果不同；
+     * 时区偏移取自java.time时区数据，1900年之前的地方平时(LMT)与Calendar使用的标准偏移可能相差数分钟
+     *
+     * @param epochMilli 源时间的毫秒时间戳
+     * @return 月初时间的毫秒时间戳
+     */
+    public static long getFirstDayOfMonth(long epochMilli) {
+        ZoneOffsetTable table = clockZone.table;
+        long date = CivilCalendar.civilFromDays(Math.floorDiv(table.utcToLocal(epochMilli), CivilCalendar.MILLIS_PER_DAY));
+        long firstDay = CivilCalendar.daysFromCivil(CivilCalendar.year(date), CivilCalendar.month(date), 1);
+        return table.localToUtc(firstDay * CivilCalendar.MILLIS_PER_DAY);
+    }
+
+    /**
+     * 功能：给定毫秒时间戳，获取该时间的月末最后一天的23时59分59秒999毫秒，不创建任何对象
+     *
+     * @param epochMilli 源时间的毫秒时间戳
+     * @return 月末时间的毫秒时间戳
+     */
+    public static long getLastDayOfMonth(long epochMilli) {
+        ZoneOffsetTable table = clockZone.table;
+        long date = CivilCalendar.civilFromDays(Math.floorDiv(table.utcToLocal(epochMilli), CivilCalendar.MILLIS_PER_DAY));
+        long year = CivilCalendar.year(date);
+        int month = CivilCalendar.month(date);
+        long lastDay = CivilCalendar.daysFromCivil(year, month, CivilCalendar.lengthOfMonth(year, month));
+        return table.localToUtc((lastDay + 1) * CivilCalendar.MILLIS_PER_DAY - 1);
+    }
+
+    /**
+     * 功能：给定毫秒时间戳，获取当天0时0分0秒0毫秒，不创建任何对象
+     *
+     * @param epochMilli 源时间的毫秒时间戳
+     * @return 当天开始时间的毫秒时间戳
+     */
+    public static long getStartOfDay(long epochMilli) {
+        ZoneOffsetTable table = clockZone.table;
+        long day = Math.floorDiv(table.utcToLocal(epochMilli), CivilCalendar.MILLIS_PER_DAY);
+        return table.localToUtc(day * CivilCalendar.MILLIS_PER_DAY);
+    }
+
+    /**
+     * 功能：给定毫秒时间戳偏移指定天数，保持当地时刻不变，如果参数为负数，则往前回滚
+     *
+     * @param epochMilli 源时间的毫秒时间戳
+     * @param days       偏移的天数
+     * @return 新时间的毫秒时间戳
+     */
+    public static long addDays(long epochMilli, int days) {
+        ZoneOffsetTable table = clockZone.table;
+        int offset = table.offsetOfUtc(epochMilli);
+        return table.localToUtc(epochMilli + offset + days * CivilCalendar.MILLIS_PER_DAY, offset);
+    }
+
+    /**
+     * 功能：给定毫秒时间戳偏移指定月数，保持当地时刻不变，日期超出目标月天数时取目标月最后一天
+     * 示例：2020-01-31 10:00 偏移1个月 → 2020-02-29 10:00
+     *
+     * @param epochMilli 源时间的毫秒时间戳
+     * @param months     偏移的月数
+     * @return 新时间的毫秒时间戳
+     */
+    public static long addMonths(long epochMilli, int months) {
+        ZoneOffsetTable table = clockZone.table;
+        long local = table.utcToLocal(epochMilli);
+        long day = Math.floorDiv(local, CivilCalendar.MILLIS_PER_DAY);
+        long date = CivilCalendar.civilFromDays(day);
+        long totalMonths = CivilCalendar.year(date) * 12 + CivilCalendar.month(date) - 1 + months;
+        long year = Math.floorDiv(totalMonths, 12L);
+        int month = (int) Math.floorMod(totalMonths, 12L) + 1;
+        int dayOfMonth = Math.min(CivilCalendar.day(date), CivilCalendar.lengthOfMonth(year, month));
+        long newDay = CivilCalendar.daysFromCivil(year, month, dayOfMonth);
+        return table.localToUtc(local + (newDay - day) * CivilCalendar.MILLIS_PER_DAY);
+    }
+
+    /**
+     * 功能：获取毫秒时间戳对应的星期，1为星期一，7为星期日，与DayOfWeek.getValue()一致
+     *
+     * @param epochMilli 毫秒时间戳
+     * @return 星期
+     */
+    public static int getDayOfWeek(long epochMilli) {
+        return CivilCalendar.dayOfWeek(Math.floorDiv(clockZone.table.utcToLocal(epochMilli), CivilCalendar.MILLIS_PER_DAY));
+    }
+
+    /**
+     * 功能：批量获取月初时间
+     * 场景：按月对时间戳列分桶
+     *
+     * @param src 源时间的毫秒时间戳数组
+     * @return 与参数一一对应的月初时间
+     */
+    public static long[] getFirstDayOfMonth(long[] src) {
+        long[] dest = new long[src.length];
+        getFirstDayOfMonth(src, dest);
+        return dest;
+    }
+
+    /**
+     * 功能：批量获取月初时间，结果写入目标数组，目标数组可以就是源数组
+     *
+     * @param src  源时间的毫秒时间戳数组
+     * @param dest 目标数组，长度不能小于源数组
+     */
+    public static void getFirstDayOfMonth(long[] src, long[] dest) {
+        checkBulkLength(src.length, dest.length);
+        for (int i = 0; i < src.length; i++) {
+            dest[i] = getFirstDayOfMonth(src[i]);
+        }
+    }
+
+    /**
+     * 功能：批量获取月末时间
+     *
+     * @param src 源时间的毫秒时间戳数组
+     * @return 与参数一一对应的月末时间
+     */
+    public static long[] getLastDayOfMonth(long[] src) {
+        long[] dest = new long[src.length];
+        getLastDayOfMonth(src, dest);
+        return dest;
+    }
+
+    /**
+     * 功能：批量获取月末时间，结果写入目标数组，目标数组可以就是源数组
+     *
+     * @param src  源时间的毫秒时间戳数组
+     * @param dest 目标数组，长度不能小于源数组
+     */
+    public static void getLastDayOfMonth(long[] src, long[] dest) {
+        checkBulkLength(src.length, dest.length);
+        for (int i = 0; i < src.length; i++) {
+            dest[i] = getLastDayOfMonth(src[i]);
+        }
+    }
+
+    /**
+     * 功能：批量获取当天开始时间
+     * 场景：按天对时间戳列分桶
+     *
+     * @param src 源时间的毫秒时间戳数组
+     * @return 与参数一一对应的当天开始时间
+     */
+    public static long[] getStartOfDay(long[] src) {
+        long[] dest = new long[src.length];
+        getStartOfDay(src, dest);
+        return dest;
+    }
+
+    /**
+     * 功能：批量获取当天开始时间，结果写入目标数组，目标数组可以就是源数组
+     *
+     * @param src  源时间的毫秒时间戳数组
+     * @param dest 目标数组，长度不能小于源数组
+     */
+    public static void getStartOfDay(long[] src, long[] dest) {
+        checkBulkLength(src.length, dest.length);
+        for (int i = 0; i < src.length; i++) {
+            dest[i] = getStartOfDay(src[i]);
+        }
+    }
+
+    /**
+     * 功能：批量根据生日计算年龄，共用同一个参考时间
+     * 场景：夜间批量客户分群
+     * 说明：出生日期晚于参考时间的行结果为负数，由调用方过滤；数据量较大时自动拆分到多个CPU核心
+     *
+     * @param birthdays 生日的毫秒时间戳数组
+     * @param reference 参考时间的毫秒时间戳，通常为当前时间
+     * @return 与参数一一对应的年龄
+     */
+    public static int[] getAges(long[] birthdays, long reference) {
+        int[] ages = new int[birthdays.length];
+        getAges(birthdays, reference, ages);
+        return ages;
+    }
+
+    /**
+     * 功能：批量根据生日计算年龄，结果写入目标数组
+     *
+     * @param birthdays 生日的毫秒时间戳数组
+     * @param reference 参考时间的毫秒时间戳，通常为当前时间
+     * @param ages      目标数组，长度不能小于生日数组
+     */
+    public static void getAges(long[] birthdays, long reference, int[] ages) {
+        checkBulkLength(birthdays.length, ages.length);
+        ZoneOffsetTable table = clockZone.table;
+        int referenceDate = toDateNumber(table, reference);
+        forEachRange(birthdays.length, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                ages[i] = ageOf(toDateNumber(table, birthdays[i]), referenceDate);
+            }
+        });
+    }
+
+    /**
+     * 功能：批量根据生日计算年龄，生日与参考日期均为yyyyMMdd格式的整数
+     * 示例：生日19990520，参考日期20200423，结果是20
+     *
+     * @param birthdays yyyyMMdd格式的生日数组
+     * @param reference yyyyMMdd格式的参考日期
+     * @return 与参数一一对应的年龄
+     */
+    public static int[] getAges(int[] birthdays, int reference) {
+        int[] ages = new int[birthdays.length];
+        getAges(birthdays, reference, ages);
+        return ages;
+    }
+
+    /**
+     * 功能：批量根据yyyyMMdd格式的生日计算年龄，结果写入目标数组，目标数组可以就是源数组
+     *
+     * @param birthdays yyyyMMdd格式的生日数组
+     * @param reference yyyyMMdd格式的参考日期
+     * @param ages      目标数组，长度不能小于生日数组
+     */
+    public static void getAges(int[] birthdays, int reference, int[] ages) {
+        checkBulkLength(birthdays.length, ages.length);
+        forEachRange(birthdays.length, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                ages[i] = ageOf(birthdays[i], reference);
+            }
+        });
+    }
+
+    /**
+     * 功能：按季节统计时间戳的数量
+     * 场景：统计各季节出生的客户数
+     *
+     * @param epochMillis 毫秒时间戳数组
+     * @return 各季节的数量，包含全部季节
+     */
+    public static Map<Season, Long> getSeasonHistogram(long[] epochMillis) {
+        ZoneOffsetTable table = clockZone.table;
+        return seasonHistogram(epochMillis.length, (from, to, counts) -> {
+            for (int i = from; i < to; i++) {
+                long date = CivilCalendar.civilFromDays(Math.floorDiv(table.utcToLocal(epochMillis[i]), CivilCalendar.MILLIS_PER_DAY));
+                counts[SEASON_OF_MONTH[CivilCalendar.month(date)].ordinal()]++;
+            }
+        });
+    }
+
+    /**
+     * 功能：按季节统计yyyyMMdd格式日期的数量
+     *
+     * @param dates yyyyMMdd格式的日期数组
+     * @return 各季节的数量，包含全部季节
+     */
+    public static Map<Season, Long> getSeasonHistogram(int[] dates) {
+        return seasonHistogram(dates.length, (from, to, counts) -> {
+            for (int i = from; i < to; i++) {
+                int month = dates[i] / 100 % 100;
+                if (month < 1 || month > 12) {
+                    throw new IllegalArgumentException("日期格式不正确: " + dates[i]);
+                }
+                counts[SEASON_OF_MONTH[month].ordinal()]++;
+            }
+        });
+    }
+
+    private static Map<Season, Long> seasonHistogram(int length, RangeCounter counter) {
+        Season[] seasons = Season.values();
+        long[][] partial = new long[chunkCount(length)][seasons.length];
+        forEachRange(length, (chunk, from, to) -> {
+            counter.count(from, to, partial[chunk]);
+        });
+        //合并各分片的计数
+        Map<Season, Long> histogram = new EnumMap<>(Season.class);
+        for (Season season : seasons) {
+            long total = 0;
+            for (long[] counts : partial) {
+                total += counts[season.ordinal()];
+            }
+            histogram.put(season, total);
+        }
+        return histogram;
+    }
+
+    /**
+     * 功能：毫秒时间戳转换为yyyyMMdd格式的整数
+     */
+    private static int toDateNumber(ZoneOffsetTable table, long epochMilli) {
+        long date = CivilCalendar.civilFromDays(Math.floorDiv(table.utcToLocal(epochMilli), CivilCalendar.MILLIS_PER_DAY));
+        return (int) CivilCalendar.year(date) * 10000 + CivilCalendar.month(date) * 100 + CivilCalendar.day(date);
+    }
+
+    /**
+     * 功能：根据yyyyMMdd格式的生日与参考日期计算周岁，月日未到则减一
+     */
+    private static int ageOf(int birthday, int reference) {
+        return Math.floorDiv(reference - birthday, 10000);
+    }
+
+    private static int chunkCount(int length) {
+        if (length < PARALLEL_THRESHOLD) {
+            return 1;
+        }
+        return Math.max(1, Math.min(length / PARALLEL_THRESHOLD, ForkJoinPool.getCommonPoolParallelism() * 4));
+    }
+
+    /**
+     * 功能：把[0, length)拆分成若干分片执行，数据量超过阈值时在公共ForkJoin线程池中并行执行
+     */
+    private static void forEachRange(int length, RangeTask task) {
+        int chunks = chunkCount(length);
+        if (chunks == 1) {
+            task.run(0, 0, length);
+            return;
+        }
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+                task.run(chunk, (int) ((long) length * chunk / chunks), (int) ((long) length * (chunk + 1) / chunks)));
+    }
+
+    private static void checkBulkLength(int srcLength, int destLength) {
+        if (destLength < srcLength) {
+            throw new IllegalArgumentException("目标数组长度不能小于源数组长度!");
+        }
+    }
+
+    /**
+     * 分片任务
+     */
+    private interface RangeTask {
+        void run(int chunk, int from, int to);
+    }
+
+    /**
+     * 分片计数任务
+     */
+    private interface RangeCounter {
+        void count(int from, int to, long[] counts);
+    }
+
+    /**
+     * 时钟与其时区的偏移表, 整体替换, 读取方不会看到新时钟与旧偏移表的组合
+     */
+    private static final class ClockZone {
+        private final Clock clock;
+        private final ZoneOffsetTable table;
+
+        private ClockZone(Clock clock) {
+            this.clock = clock;
+            this.table = ZoneOffsetTable.of(clock.getZone());
+        }
+    }
+
+    private static String displayTime(long now, long time, ZoneId zone) {
         //获取两个时间的时间差, 单位毫秒
-        long result = Math.abs(nowTimeLong - dateTimeLong);
+        long result = Math.abs(now - time);
         //如果时间在一分钟内
-        if (result < 60000) {
-            long seconds = result / 1000;
-            r = "刚刚";
-            //时间在一小时内
-        } else if (result >= 60000 && result < 3600000) {
-            long seconds = result / 60000;
-            r = seconds + "分钟前";
-            //时间在一天内
-        } else if (result >= 3600000 && result < 86400000) {
-            long seconds = result / 3600000;
-            r = seconds + "小时前";
-            //时间在三十天内
-        } else if (result >= 86400000 && result < 1702967296) {
-            long seconds = result / 86400000;
-            r = seconds + "天前";
-            //不在上面范围的显示传入的时间
-        } else {
-            SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
-            r = df.format(date).toString();
-        }
-        return r;
+        if (result < MILLIS_PER_MINUTE) {
+            return "刚刚";
+        }
+        //时间在一小时内
+        if (result < MILLIS_PER_HOUR) {
+            return (result / MILLIS_PER_MINUTE) + "分钟前";
+        }
+        //时间在一天内
+        if (result < MILLIS_PER_DAY) {
+            return (result / MILLIS_PER_HOUR) + "小时前";
+        }
+        if (result < DISPLAY_DAY_LIMIT) {
+            return (result / MILLIS_PER_DAY) + "天前";
+        }
+        //不在上面范围的显示传入的时间
+        return DISPLAY_DATE_FORMATTER.format(toLocalDate(time, zone));
+    }
+
+    private static LocalDate toLocalDate(long epochMilli, ZoneId zone) {
+        return Instant.ofEpochMilli(epochMilli).atZone(zone).toLocalDate();
     }
 }
@@ -0,0 +1,196 @@
+package date;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 时区偏移表：把时区的历史转换及夏令时规则一次性展开为毫秒数组, 查询时只做二分查找, 不创建任何对象。
+ * 超出展开范围的时间退回到ZoneRules查询。
+ */
+final class ZoneOffsetTable {
+
+    /**
+     * 没有历史转换时规则展开的起始时间, 1900-01-01T00:00:00Z
+     */
+    private static final long EXPANDED_FROM = -2208988800000L;
+
+    /**
+     * 规则展开的截止时间, 2400-01-01T00:00:00Z
+     */
+    private static final long EXPANDED_UNTIL = 13569465600000L;
+
+    private static final ConcurrentMap<ZoneId, ZoneOffsetTable> CACHE = new ConcurrentHashMap<>();
+
+    private final ZoneId zone;
+
+    private final ZoneRules rules;
+
+    /**
+     * 各次转换的UTC毫秒时间
+     */
+    private final long[] transitions;
+
+    /**
+     * offsets[i]为第i次转换之前的偏移毫秒数, 最后一个元素为最后一次转换之后的偏移
+     */
+    private final int[] offsets;
+
+    /**
+     * 各次转换在本地时间上造成的间隙或重叠区间的起点(含)
+     */
+    private final long[] windowStarts;
+
+    /**
+     * 各次转换在本地时间上造成的间隙或重叠区间的终点(不含)
+     */
+    private final long[] windowEnds;
+
+    private ZoneOffsetTable(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        List<ZoneOffsetTransition> list = new ArrayList<>(rules.getTransitions());
+        ZoneOffsetTransition next = list.isEmpty()
+                ? rules.nextTransition(Instant.ofEpochMilli(EXPANDED_FROM))
+                : rules.nextTransition(list.get(list.size() - 1).getInstant());
+        while (next != null && next.getInstant().toEpochMilli() < EXPANDED_UNTIL) {
+            list.add(next);
+            next = rules.nextTransition(next.getInstant());
+        }
+        int size = list.size();
+        transitions = new long[size];
+        offsets = new int[size + 1];
+        windowStarts = new long[size];
+        windowEnds = new long[size];
+        offsets[0] = size == 0
+                ? rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000
+                : list.get(0).getOffsetBefore().getTotalSeconds() * 1000;
+        for (int i = 0; i < size; i++) {
+            ZoneOffsetTransition transition = list.get(i);
+            long before = transition.getOffsetBefore().getTotalSeconds() * 1000L;
+            long after = transition.getOffsetAfter().getTotalSeconds() * 1000L;
+            transitions[i] = transition.getInstant().toEpochMilli();
+            offsets[i + 1] = (int) after;
+            windowStarts[i] = transitions[i] + Math.min(before, after);
+            windowEnds[i] = transitions[i] + Math.max(before, after);
+        }
+    }
+
+    /**
+     * 功能：获取指定时区的偏移表, 同一时区只构建一次
+     *
+     * @param zone 时区
+     * @return 偏移表
+     */
+    static ZoneOffsetTable of(ZoneId zone) {
+        ZoneOffsetTable table = CACHE.get(zone);
+        if (table == null) {
+            table = CACHE.computeIfAbsent(zone, ZoneOffsetTable::new);
+        }
+        return table;
+    }
+
+    ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * 功能：获取某一UTC时刻的偏移毫秒数
+     *
+     * @param epochMilli UTC毫秒时间
+     * @return 偏移毫秒数
+     */
+    int offsetOfUtc(long epochMilli) {
+        if (epochMilli >= EXPANDED_UNTIL && !rules.isFixedOffset()) {
+            return rules.getOffset(Instant.ofEpochMilli(epochMilli)).getTotalSeconds() * 1000;
+        }
+        //找到第一个大于该时刻的转换, 其之前的偏移即为所求
+        int low = 0;
+        int high = transitions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (transitions[mid] <= epochMilli) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return offsets[low];
+    }
+
+    /**
+     * 功能：本地时间(以毫秒表示的墙上时间)转换为UTC毫秒时间
+     * 落在夏令时间隙或重叠区间中的时间都按两个偏移中较小的一个(即标准时间)计算, 间隙中的时间因此向后顺延, 与GregorianCalendar一致
+     *
+     * @param localMilli 本地毫秒时间
+     * @return UTC毫秒时间
+     */
+    long localToUtc(long localMilli) {
+        if (localMilli >= EXPANDED_UNTIL && !rules.isFixedOffset()) {
+            //超出展开范围时按ZoneRules查找间隙或重叠, 同样取较小的偏移; 转换总在整秒, 按秒查询即可
+            LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMilli, 1000L), 0, ZoneOffset.UTC);
+            ZoneOffsetTransition transition = rules.getTransition(local);
+            int offsetSeconds = transition == null ? rules.getOffset(local).getTotalSeconds()
+                    : Math.min(transition.getOffsetBefore().getTotalSeconds(), transition.getOffsetAfter().getTotalSeconds());
+            return localMilli - offsetSeconds * 1000L;
+        }
+        //找到最后一个区间起点不晚于该本地时间的转换
+        int low = 0;
+        int high = windowStarts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (windowStarts[mid] <= localMilli) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int index = low - 1;
+        if (index < 0) {
+            return localMilli - offsets[0];
+        }
+        //在间隙或重叠区间内, 使用较小的偏移
+        if (localMilli < windowEnds[index]) {
+            return localMilli - Math.min(offsets[index], offsets[index + 1]);
+        }
+        return localMilli - offsets[index + 1];
+    }
+
+    /**
+     * 功能：本地毫秒时间转换为UTC毫秒时间, 优先沿用给定的偏移
+     * 与Calendar.add按天偏移的规则一致：先按原偏移换算, 偏移发生变化时修正差值, 修正后跨了日期则放弃修正
+     *
+     * @param localMilli      本地毫秒时间
+     * @param preferredOffset 优先使用的偏移毫秒数
+     * @return UTC毫秒时间
+     */
+    long localToUtc(long localMilli, int preferredOffset) {
+        long epochMilli = localMilli - preferredOffset;
+        int actualOffset = offsetOfUtc(epochMilli);
+        if (actualOffset != preferredOffset) {
+            long adjusted = epochMilli + preferredOffset - actualOffset;
+            long adjustedDay = Math.floorDiv(utcToLocal(adjusted), CivilCalendar.MILLIS_PER_DAY);
+            if (adjustedDay == Math.floorDiv(localMilli, CivilCalendar.MILLIS_PER_DAY)) {
+                return adjusted;
+            }
+        }
+        return epochMilli;
+    }
+
+    /**
+     * 功能：UTC毫秒时间转换为本地毫秒时间
+     *
+     * @param epochMilli UTC毫秒时间
+     * @return 本地毫秒时间
+     */
+    long utcToLocal(long epochMilli) {
+        return epochMilli + offsetOfUtc(epochMilli);
+    }
+}
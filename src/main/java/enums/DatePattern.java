@@ -0,0 +1,29 @@
+package enums;
+
+/**
+ * 快速日期解析与格式化支持的固定格式
+ */
+public enum DatePattern {
+    //2020-04-23
+    DATE("yyyy-MM-dd"),
+    //20200423
+    COMPACT_DATE("yyyyMMdd"),
+    //2020-04-23 08:30:16
+    DATE_TIME("yyyy-MM-dd HH:mm:ss"),
+    //2020-04-23 08:30:16.250
+    DATE_TIME_MILLIS("yyyy-MM-dd HH:mm:ss.SSS"),
+    //2020-04-23T08:30:16.250+08:00, 解析时秒、小数秒与偏移均可省略, 省略偏移按当前时区处理
+    ISO_OFFSET_DATE_TIME("yyyy-MM-dd'T'HH:mm:ss.SSSXXX"),
+    //2020-04-23T00:30:16.250Z, 格式化时总是输出UTC时间, 解析规则与ISO_OFFSET_DATE_TIME相同
+    ISO_INSTANT("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+    private String pattern;
+
+    private DatePattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String getPattern() {
+        return this.pattern;
+    }
+}
@@ -0,0 +1,34 @@
+package enums;
+
+/**
+ * 复制时可同时计算的摘要算法
+ */
+public enum DigestAlgorithm {
+    //4字节，与zip、gzip相同的CRC-32
+    CRC32("CRC32", 4),
+    //4字节，Castagnoli多项式，iSCSI、ext4等使用，Java 9以上有硬件加速
+    CRC32C("CRC32C", 4),
+    //16字节，常用作ETag
+    MD5("MD5", 16),
+    //20字节
+    SHA1("SHA-1", 20),
+    //32字节
+    SHA256("SHA-256", 32);
+
+    private String algorithm;
+
+    private int length;
+
+    private DigestAlgorithm(String algorithm, int length) {
+        this.algorithm = algorithm;
+        this.length = length;
+    }
+
+    public String getAlgorithm() {
+        return this.algorithm;
+    }
+
+    public int getLength() {
+        return this.length;
+    }
+}
@@ -0,0 +1,566 @@
+package file;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import file.FileUtils.FileSizeUnit;
+
+/**
+ * 按内容查找重复文件。
+ * 依次缩小候选范围: 先按大小分组, 大小相同的再比较首尾各4KB的部分摘要, 仍然相同的才用1MB的顺序读缓冲区计算完整的SHA-256;
+ * 各阶段都并行执行。指定索引文件时, 完整摘要按路径、大小与修改时间持久化, 再次运行时未变化的文件不再读取全文。
+ * 同一文件的多个硬链接只计一次。
+ * 示例：new DuplicateFileFinder().index(indexFile).find(root).getReclaimable(FileSizeUnit.G)
+ */
+public final class DuplicateFileFinder {
+
+    /**
+     * 部分摘要读取的首尾字节数
+     */
+    private static final int PARTIAL_SIZE = 4096;
+
+    /**
+     * 完整摘要的读缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 索引文件的首行
+     */
+    private static final String INDEX_HEADER = "# size\tmodified\tsha256\tpath";
+
+    private long minSize = 1;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private Path indexFile;
+
+    /**
+     * 功能：设置参与比较的最小文件大小，默认为1，即忽略空文件
+     *
+     * @param bytes 字节数
+     * @return 本查找器
+     */
+    public DuplicateFileFinder minSize(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("文件大小不能为负数: " + bytes);
+        }
+        this.minSize = bytes;
+        return this;
+    }
+
+    /**
+     * 功能：设置遍历与计算摘要的并行度
+     *
+     * @param parallelism 线程数
+     * @return 本查找器
+     */
+    public DuplicateFileFinder parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 功能：设置持久化的摘要索引文件，运行前读取、运行后写回，不存在时自动创建
+     *
+     * @param indexFile 索引文件
+     * @return 本查找器
+     */
+    public DuplicateFileFinder index(Path indexFile) {
+        this.indexFile = indexFile;
+        return this;
+    }
+
+    /**
+     * 功能：查找一个或多个目录下的重复文件
+     *
+     * @param roots 根目录
+     * @return 查找报告，重复组按可回收空间从大到小排列
+     * @throws IOException 读写索引失败
+     */
+    public Report find(Path... roots) throws IOException {
+        Map<String, Entry> index = indexFile != null && Files.exists(indexFile) ? loadIndex(indexFile) : new HashMap<>();
+        Queue<FileTreeProcessor.Failure> failures = new ConcurrentLinkedQueue<>();
+        AtomicLong indexHits = new AtomicLong();
+        AtomicLong hashedFiles = new AtomicLong();
+        AtomicLong hashedBytes = new AtomicLong();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            //1. 并行遍历所有根目录
+            Queue<Entry> scanned = new ConcurrentLinkedQueue<>();
+            parallel(pool, normalize(roots), root -> {
+                FileTreeProcessor.Report report = new FileTreeProcessor(root).concurrency(parallelism)
+                        .process((file, attributes) -> scanned.add(new Entry(file.toAbsolutePath().normalize(),
+                                attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey())));
+                failures.addAll(report.getFailures());
+            });
+
+            //2. 按大小分组，同一文件的硬链接只保留路径最小的一个
+            List<Entry> entries = new ArrayList<>(scanned);
+            entries.sort((a, b) -> a.path.compareTo(b.path));
+            Map<Long, List<Entry>> bySize = new HashMap<>();
+            Set<Object> fileKeys = new HashSet<>();
+            for (Entry entry : entries) {
+                if (entry.size >= minSize && (entry.fileKey == null || fileKeys.add(entry.fileKey))) {
+                    bySize.computeIfAbsent(entry.size, size -> new ArrayList<>()).add(entry);
+                }
+            }
+            List<Entry> candidates = new ArrayList<>();
+            for (List<Entry> group : bySize.values()) {
+                if (group.size() > 1) {
+                    candidates.addAll(group);
+                }
+            }
+
+            //3. 复用索引中未变化文件的完整摘要，其余的计算部分摘要；小文件的部分摘要即全文
+            parallel(pool, candidates, entry -> {
+                Entry indexed = index.get(entry.path.toString());
+                if (indexed != null && indexed.size == entry.size && indexed.modified == entry.modified) {
+                    entry.hash = indexed.hash;
+                    indexHits.incrementAndGet();
+                    return;
+                }
+                try {
+                    if (entry.size <= PARTIAL_SIZE * 2) {
+                        entry.hash = fullHash(entry.path);
+                        hashedFiles.incrementAndGet();
+                        hashedBytes.addAndGet(entry.size);
+                    } else {
+                        entry.partial = partialHash(entry.path, entry.size);
+                    }
+                } catch (IOException e) {
+                    entry.failed = true;
+                    failures.add(new FileTreeProcessor.Failure(entry.path, e));
+                }
+            });
+
+            //4. 大小与部分摘要都相同、且没有完整摘要的文件计算完整摘要
+            Map<String, List<Entry>> byPartial = new HashMap<>();
+            for (Entry entry : candidates) {
+                if (entry.partial != null) {
+                    byPartial.computeIfAbsent(entry.size + ":" + entry.partial, key -> new ArrayList<>()).add(entry);
+                }
+            }
+            List<Entry> needFullHash = new ArrayList<>();
+            for (List<Entry> group : byPartial.values()) {
+                //与已有完整摘要的同大小文件也可能重复
+                if (group.size() > 1 || hasKnownHash(bySize.get(group.get(0).size))) {
+                    needFullHash.addAll(group);
+                }
+            }
+            parallel(pool, needFullHash, entry -> {
+                try {
+                    entry.hash = fullHash(entry.path);
+                    hashedFiles.incrementAndGet();
+                    hashedBytes.addAndGet(entry.size);
+                } catch (IOException e) {
+                    entry.failed = true;
+                    failures.add(new FileTreeProcessor.Failure(entry.path, e));
+                }
+            });
+
+            //5. 按大小与完整摘要分组
+            Map<String, List<Entry>> byHash = new HashMap<>();
+            for (Entry entry : candidates) {
+                if (entry.hash != null && !entry.failed) {
+                    byHash.computeIfAbsent(entry.size + ":" + entry.hash, key -> new ArrayList<>()).add(entry);
+                }
+            }
+            List<DuplicateGroup> groups = new ArrayList<>();
+            for (List<Entry> group : byHash.values()) {
+                if (group.size() > 1) {
+                    List<Path> paths = new ArrayList<>(group.size());
+                    for (Entry entry : group) {
+                        paths.add(entry.path);
+                    }
+                    Collections.sort(paths);
+                    groups.add(new DuplicateGroup(group.get(0).size, group.get(0).hash, paths));
+                }
+            }
+            groups.sort((a, b) -> Long.compare(b.getReclaimableBytes(), a.getReclaimableBytes()));
+
+            if (indexFile != null) {
+                saveIndex(indexFile, index, candidates, roots);
+            }
+            return new Report(groups, entries.size(), hashedFiles.get(), hashedBytes.get(), indexHits.get(),
+                    new ArrayList<>(failures));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static boolean hasKnownHash(List<Entry> group) {
+        for (Entry entry : group) {
+            if (entry.hash != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 首尾各PARTIAL_SIZE字节的MD5
+     */
+    private static String partialHash(Path file, long size) throws IOException {
+        MessageDigest digest = newDigest("MD5");
+        ByteBuffer buffer = ByteBuffer.allocate(PARTIAL_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readFully(channel, buffer, 0);
+            digest.update(buffer);
+            buffer.clear();
+            readFully(channel, buffer, size - PARTIAL_SIZE);
+            digest.update(buffer);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * 整个文件的SHA-256, 以大缓冲区顺序读取
+     */
+    private static String fullHash(Path file) throws IOException {
+        MessageDigest digest = newDigest("SHA-256");
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("不支持的摘要算法: " + algorithm, e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static List<Path> normalize(Path[] roots) {
+        List<Path> result = new ArrayList<>(roots.length);
+        for (Path root : roots) {
+            result.add(root.toAbsolutePath().normalize());
+        }
+        return result;
+    }
+
+    /**
+     * 在指定的线程池中并行处理, 受检异常包装后在调用线程重新抛出
+     */
+    private static <T> void parallel(ForkJoinPool pool, Collection<T> items, IoConsumer<T> action) throws IOException {
+        try {
+            pool.submit(() -> items.parallelStream().forEach(item -> {
+                try {
+                    action.accept(item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("查找重复文件时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 读取索引, 格式为每行“大小\t修改时间\tSHA-256\t路径”, 无法解析的行忽略
+     */
+    private static Map<String, Entry> loadIndex(Path indexFile) throws IOException {
+        Map<String, Entry> index = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", 4);
+                if (fields.length != 4) {
+                    continue;
+                }
+                try {
+                    Entry entry = new Entry(Paths.get(fields[3]), Long.parseLong(fields[0]), Long.parseLong(fields[1]), null);
+                    entry.hash = fields[2];
+                    index.put(fields[3], entry);
+                } catch (RuntimeException e) {
+                    //损坏的行，忽略
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 写回索引: 本次得到完整摘要的文件, 加上不在本次扫描范围内的原有条目; 先写临时文件再替换
+     */
+    private static void saveIndex(Path indexFile, Map<String, Entry> index, List<Entry> candidates, Path[] roots)
+            throws IOException {
+        Map<String, Entry> merged = new HashMap<>();
+        List<Path> scannedRoots = normalize(roots);
+        for (Entry entry : index.values()) {
+            boolean scanned = false;
+            for (Path root : scannedRoots) {
+                if (entry.path.startsWith(root)) {
+                    scanned = true;
+                    break;
+                }
+            }
+            if (!scanned) {
+                merged.put(entry.path.toString(), entry);
+            }
+        }
+        for (Entry entry : candidates) {
+            if (entry.hash != null && !entry.failed) {
+                merged.put(entry.path.toString(), entry);
+            }
+        }
+        Path absolute = indexFile.toAbsolutePath();
+        if (absolute.getParent() != null) {
+            Files.createDirectories(absolute.getParent());
+        }
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(INDEX_HEADER);
+            writer.newLine();
+            for (Entry entry : merged.values()) {
+                String path = entry.path.toString();
+                if (path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0) {
+                    continue;
+                }
+                writer.write(entry.size + "\t" + entry.modified + "\t" + entry.hash + "\t" + path);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @FunctionalInterface
+    private interface IoConsumer<T> {
+        void accept(T item) throws IOException;
+    }
+
+    /**
+     * 扫描到的文件, 摘要在并行阶段中由各自的线程写入
+     */
+    private static final class Entry {
+        private final Path path;
+        private final long size;
+        private final long modified;
+        private final Object fileKey;
+        private volatile String partial;
+        private volatile String hash;
+        private volatile boolean failed;
+
+        private Entry(Path path, long size, long modified, Object fileKey) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+        }
+    }
+
+    /**
+     * 一组内容相同的文件
+     */
+    public static final class DuplicateGroup {
+        private final long size;
+        private final String hash;
+        private final List<Path> paths;
+
+        private DuplicateGroup(long size, String hash, List<Path> paths) {
+            this.size = size;
+            this.hash = hash;
+            this.paths = Collections.unmodifiableList(paths);
+        }
+
+        /**
+         * 功能：获取单个文件的大小
+         *
+         * @return 字节数
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * 功能：获取内容的SHA-256
+         *
+         * @return 十六进制摘要
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * 功能：获取组内的文件，按路径排序
+         *
+         * @return 文件路径
+         */
+        public List<Path> getPaths() {
+            return paths;
+        }
+
+        /**
+         * 功能：获取只保留一份时可回收的字节数
+         *
+         * @return 字节数
+         */
+        public long getReclaimableBytes() {
+            return size * (paths.size() - 1);
+        }
+    }
+
+    /**
+     * 查找报告
+     */
+    public static final class Report {
+        private final List<DuplicateGroup> groups;
+        private final long scannedFiles;
+        private final long hashedFiles;
+        private final long hashedBytes;
+        private final long indexHits;
+        private final List<FileTreeProcessor.Failure> failures;
+
+        private Report(List<DuplicateGroup> groups, long scannedFiles, long hashedFiles, long hashedBytes,
+                       long indexHits, List<FileTreeProcessor.Failure> failures) {
+            this.groups = Collections.unmodifiableList(groups);
+            this.scannedFiles = scannedFiles;
+            this.hashedFiles = hashedFiles;
+            this.hashedBytes = hashedBytes;
+            this.indexHits = indexHits;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        public List<DuplicateGroup> getGroups() {
+            return groups;
+        }
+
+        /**
+         * 功能：获取每组只保留一份时可回收的总字节数
+         *
+         * @return 字节数
+         */
+        public long getReclaimableBytes() {
+            long total = 0;
+            for (DuplicateGroup group : groups) {
+                total += group.getReclaimableBytes();
+            }
+            return total;
+        }
+
+        /**
+         * 功能：获取对应单位的可回收空间，不足一个单位的部分进位
+         * 示例：可回收1275个字节，单位是K，则返回2
+         *
+         * @param unit 单位，如K、M、G、T
+         * @return 对应单位的可回收空间
+         */
+        public long getReclaimable(FileSizeUnit unit) {
+            return FileUtils.getFileSize(getReclaimableBytes(), unit);
+        }
+
+        /**
+         * 功能：获取扫描到的文件数
+         *
+         * @return 文件数
+         */
+        public long getScannedFiles() {
+            return scannedFiles;
+        }
+
+        /**
+         * 功能：获取本次读取全文计算摘要的文件数
+         *
+         * @return 文件数
+         */
+        public long getHashedFiles() {
+            return hashedFiles;
+        }
+
+        /**
+         * 功能：获取本次读取全文计算摘要的字节数
+         *
+         * @return 字节数
+         */
+        public long getHashedBytes() {
+            return hashedBytes;
+        }
+
+        /**
+         * 功能：获取直接使用索引中摘要的文件数
+         *
+         * @return 文件数
+         */
+        public long getIndexHits() {
+            return indexHits;
+        }
+
+        /**
+         * 功能：获取无法访问或读取失败的文件，这些文件不参与比较
+         *
+         * @return 失败明细
+         */
+        public List<FileTreeProcessor.Failure> getFailures() {
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package file;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 目录树批量处理器。
+ * 调用线程遍历目录树, 把满足过滤条件的文件逐个交给工作线程处理: 运行在Java 21及以上时每个文件一个虚拟线程,
+ * 否则使用不超过CPU核数若干倍的线程池。同时处理的文件数由信号量限制, 达到上限时遍历暂停, 内存占用与目录大小无关。
+ * 单个文件的异常被记录后继续处理其它文件, 处理期间可从其它线程读取实时的进度与吞吐。
+ * 示例：new FileTreeProcessor(root).glob("**.log").concurrency(64).process((file, attributes) -> ...)
+ */
+public final class FileTreeProcessor {
+
+    /**
+     * 默认同时处理的文件数
+     */
+    public static final int DEFAULT_CONCURRENCY = 256;
+
+    /**
+     * 报告中最多保留的失败明细条数，超过时只计数
+     */
+    private static final int MAX_FAILURES = 1000;
+
+    /**
+     * 没有虚拟线程时线程池大小为CPU核数的倍数，超出的并发在线程池队列中等待
+     */
+    private static final int THREADS_PER_PROCESSOR = 4;
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor，Java 21以下为空
+     */
+    private static final Method VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private final Path root;
+
+    private final List<Predicate<Path>> filters = new ArrayList<>();
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    private int maxDepth = Integer.MAX_VALUE;
+
+    private boolean followLinks;
+
+    private volatile boolean cancelled;
+
+    private volatile Counters counters = new Counters();
+
+    /**
+     * 功能：创建处理器
+     *
+     * @param root 根目录
+     */
+    public FileTreeProcessor(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * 功能：只处理相对根目录的路径匹配glob的文件，可多次调用，需同时满足
+     * 示例：glob("**.java") → 所有子目录中的java文件；glob("*.txt") → 根目录下的txt文件
+     *
+     * @param pattern glob表达式
+     * @return 本处理器
+     */
+    public FileTreeProcessor glob(String pattern) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        filters.add(file -> matcher.matches(root.relativize(file)));
+        return this;
+    }
+
+    /**
+     * 功能：只处理满足条件的文件，可多次调用，需同时满足
+     *
+     * @param filter 过滤条件，参数为文件的完整路径
+     * @return 本处理器
+     */
+    public FileTreeProcessor filter(Predicate<Path> filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    /**
+     * 功能：设置同时处理的文件数上限
+     * 说明：没有虚拟线程时，实际执行的线程数另外受CPU核数限制，其余已提交的文件排队等待
+     *
+     * @param concurrency 上限
+     * @return 本处理器
+     */
+    public FileTreeProcessor concurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("并发数必须大于0: " + concurrency);
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * 功能：设置遍历的最大深度，根目录下的文件深度为1
+     *
+     * @param maxDepth 最大深度
+     * @return 本处理器
+     */
+    public FileTreeProcessor maxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("深度不能为负数: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * 功能：设置是否跟随符号链接，默认不跟随
+     *
+     * @param followLinks 是否跟随
+     * @return 本处理器
+     */
+    public FileTreeProcessor followLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    /**
+     * 功能：遍历并处理所有文件，全部处理完成后返回
+     *
+     * @param task 每个文件的处理逻辑，在工作线程中执行，需线程安全
+     * @return 处理报告
+     * @throws IOException 遍历失败
+     */
+    public Report process(FileTask task) throws IOException {
+        Counters current = new Counters();
+        counters = current;
+        cancelled = false;
+        Semaphore permits = new Semaphore(concurrency);
+        ExecutorService executor = newExecutor(concurrency);
+        Set<FileVisitOption> options = followLinks
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : EnumSet.noneOf(FileVisitOption.class);
+        try {
+            Files.walkFileTree(root, options, maxDepth, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (cancelled) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (!attributes.isRegularFile() || !accept(file)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        //达到并发上限时阻塞遍历线程，形成背压
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancelled = true;
+                        return FileVisitResult.TERMINATE;
+                    }
+                    current.discovered.increment();
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                task.process(file, attributes);
+                                current.completed.increment();
+                                current.bytes.add(attributes.size());
+                            } catch (Throwable e) {
+                                current.addFailure(file, e);
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    } catch (RuntimeException | Error e) {
+                        //提交失败时任务不会执行，归还许可，否则结束时取回全部许可会一直阻塞
+                        permits.release();
+                        current.addFailure(file, e);
+                        throw e;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    current.addFailure(file, e);
+                    return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    if (e != null) {
+                        current.addFailure(dir, e);
+                    }
+                    return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            //取回全部许可即所有已提交的文件都已处理完
+            permits.acquireUninterruptibly(concurrency);
+            executor.shutdown();
+            current.endNanos = System.nanoTime();
+        }
+        return new Report(current.snapshot(), new ArrayList<>(current.failures), cancelled);
+    }
+
+    /**
+     * 功能：停止遍历，已提交的文件仍会处理完，process随后返回
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 功能：获取当前(或最近一次)处理的实时进度，可在处理期间从其它线程调用
+     *
+     * @return 进度快照
+     */
+    public Stats getStats() {
+        return counters.snapshot();
+    }
+
+    private boolean accept(Path file) {
+        for (Predicate<Path> filter : filters) {
+            if (!filter.test(file)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 虚拟线程可用时每个任务一个虚拟线程, 并发由信号量控制; 否则退回固定大小的线程池,
+     * 平台线程开销较大, 线程数不超过CPU核数的THREADS_PER_PROCESSOR倍, 信号量仍限制已提交的文件数
+     */
+    private static ExecutorService newExecutor(int concurrency) {
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                //预览版本未开启虚拟线程时退回线程池
+            }
+        }
+        int threads = Math.min(concurrency, Runtime.getRuntime().availableProcessors() * THREADS_PER_PROCESSOR);
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个文件的处理逻辑
+     */
+    @FunctionalInterface
+    public interface FileTask {
+        /**
+         * 功能：处理一个文件
+         *
+         * @param file       文件路径
+         * @param attributes 遍历时读取的文件属性
+         * @throws Exception 处理失败，记录到报告中后继续处理其它文件
+         */
+        void process(Path file, BasicFileAttributes attributes) throws Exception;
+    }
+
+    /**
+     * 处理期间更新的计数器
+     */
+    private static final class Counters {
+        private final long startNanos = System.nanoTime();
+        private final LongAdder discovered = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger failureCount = new AtomicInteger();
+        private volatile long endNanos;
+
+        private void addFailure(Path file, Throwable error) {
+            failed.increment();
+            if (failureCount.incrementAndGet() <= MAX_FAILURES) {
+                failures.add(new Failure(file, error));
+            }
+        }
+
+        private Stats snapshot() {
+            return new Stats(discovered.sum(), completed.sum(), failed.sum(), bytes.sum(),
+                    (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos);
+        }
+    }
+
+    /**
+     * 进度快照
+     */
+    public static final class Stats {
+        private final long discovered;
+        private final long completed;
+        private final long failed;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        private Stats(long discovered, long completed, long failed, long bytes, long elapsedNanos) {
+            this.discovered = discovered;
+            this.completed = completed;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 功能：获取已提交处理的文件数
+         *
+         * @return 文件数
+         */
+        public long getDiscovered() {
+            return discovered;
+        }
+
+        /**
+         * 功能：获取处理成功的文件数
+         *
+         * @return 文件数
+         */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * 功能：获取失败数，包括处理失败的文件与无法访问的文件、目录
+         *
+         * @return 失败数
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * 功能：获取处理成功的文件的总字节数
+         *
+         * @return 字节数
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1000000;
+        }
+
+        /**
+         * 功能：获取每秒处理成功的文件数
+         *
+         * @return 文件数/秒
+         */
+        public double getFilesPerSecond() {
+            return elapsedNanos == 0 ? 0 : completed * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 功能：获取每秒处理成功的字节数
+         *
+         * @return 字节数/秒
+         */
+        public double getBytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "discovered=" + discovered + ", completed=" + completed + ", failed=" + failed
+                    + ", bytes=" + bytes + ", elapsed=" + getElapsedMillis() + "ms"
+                    + ", files/s=" + Math.round(getFilesPerSecond())
+                    + ", MB/s=" + Math.round(getBytesPerSecond() / FileUtils.FileSizeUnit.M.getSize());
+        }
+    }
+
+    /**
+     * 单个文件或目录的失败明细
+     */
+    public static final class Failure {
+        private final Path path;
+        private final Throwable error;
+
+        Failure(Path path, Throwable error) {
+            this.path = path;
+            this.error = error;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    /**
+     * 处理报告
+     */
+    public static final class Report {
+        private final Stats stats;
+        private final List<Failure> failures;
+        private final boolean cancelled;
+
+        private Report(Stats stats, List<Failure> failures, boolean cancelled) {
+            this.stats = stats;
+            this.failures = Collections.unmodifiableList(failures);
+            this.cancelled = cancelled;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+
+        /**
+         * 功能：获取失败明细，最多保留1000条，总数见getStats().getFailed()
+         *
+         * @return 失败明细
+         */
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        /**
+         * 功能：是否被取消或中断，提前结束了遍历
+         *
+         * @return 是否被取消
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package file;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import instrumentation.Instrumentation;
+import instrumentation.Instrumentation.Operation;
 
 public final class FileUtils {
 	    /**
@@ -85,7 +90,7 @@ public final class FileUtils {
 	        //1G = 1024 * 1024 * 1024B
 	        G(1024 * 1024 * 1024),
 	        //1T = 1024
-	        T(1024 * 1024 * 1024 * 1024);
+	        T(1024L * 1024 * 1024 * 1024);
 
 	        private long size;
 
@@ -165,6 +170,44 @@ public final class FileUtils {
 	        return fileSize;
 	    }
 
+	    /**
+	     * 功能：并发处理目录下所有匹配glob的文件，全部处理完成后返回
+	     * 示例：processFiles(new File("d:\\logs"), "**.log", (file, attributes) -> ...) → 处理d:\logs及子目录下的所有log文件
+	     * 说明：Java 21及以上每个文件一个虚拟线程，同时处理的文件数不超过256，更多配置见FileTreeProcessor
+	     *
+	     * @param dir  根目录
+	     * @param glob 相对根目录的glob表达式
+	     * @param task 每个文件的处理逻辑，需线程安全
+	     * @return 处理报告，包括进度统计与失败明细
+	     * @throws IOException 遍历失败
+	     */
+	    public static FileTreeProcessor.Report processFiles(File dir, String glob, FileTreeProcessor.FileTask task) throws IOException {
+	        long begin = Instrumentation.begin();
+	        FileTreeProcessor.Report report = new FileTreeProcessor(dir.toPath()).glob(glob).process(task);
+	        Instrumentation.end(Operation.FILE_PROCESS, begin, report.getStats().getBytes());
+	        return report;
+	    }
+
+	    /**
+	     * 功能：查找一个或多个目录下内容相同的文件
+	     * 示例：findDuplicates(new File("d:\\photos")).getReclaimable(FileSizeUnit.M) → 删除重复照片可回收的空间
+	     * 说明：先按大小、再按首尾4KB的部分摘要筛选，只有仍然相同的文件才读取全文计算SHA-256；需要增量复用摘要时使用DuplicateFileFinder的index
+	     *
+	     * @param dirs 目录
+	     * @return 查找报告，包括重复组与可回收空间
+	     * @throws IOException 遍历失败
+	     */
+	    public static DuplicateFileFinder.Report findDuplicates(File... dirs) throws IOException {
+	        Path[] roots = new Path[dirs.length];
+	        for (int i = 0; i < dirs.length; i++) {
+	            roots[i] = dirs[i].toPath();
+	        }
+	        long begin = Instrumentation.begin();
+	        DuplicateFileFinder.Report report = new DuplicateFileFinder().find(roots);
+	        Instrumentation.end(Operation.FILE_DUPLICATES, begin, report.getHashedBytes());
+	        return report;
+	    }
+
 	    /**
 	     * 功能：递归删除文件，如果是目录，则目录下所有的文件和子目录都删除。
 	     *
@@ -172,7 +215,10 @@ public final class FileUtils {
 	     * @return 删除是否成功
 	     */
 	    public static boolean deletes(File file) {
-	        return deleteFile(file);
+	        long begin = Instrumentation.begin();
+	        boolean deleted = deleteFile(file);
+	        Instrumentation.end(Operation.FILE_DELETE, begin, 0);
+	        return deleted;
 	    }
 
 	    private static boolean deleteFile(File file) {
@@ -0,0 +1,367 @@
+package instrumentation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 工具类的运行统计, 默认关闭, 以系统属性-Dutils.instrumentation=true开启。
+ * 开启后各工具类的主要方法按操作类型累计调用次数与处理的字节数(LongAdder, 多线程无竞争), 并按采样率记录耗时:
+ * 对数分布直方图、最近样本的环形缓冲区, 以及JFR事件(运行在支持JFR的JVM上时)。热路径上没有锁。
+ * 关闭时ENABLED是static final常量, JIT编译时按常量折叠, 内联后埋点代码被整体消除, 没有额外开销。
+ * 抛出异常的调用不计入统计。
+ * 示例：java -Dutils.instrumentation=true -Dutils.instrumentation.sampleRate=16 ... ; Instrumentation.snapshot().toCsv()
+ */
+public final class Instrumentation {
+
+    /**
+     * 开关的系统属性名
+     */
+    public static final String PROPERTY = "utils.instrumentation";
+
+    /**
+     * 采样率的系统属性名, 值为N表示每N次调用记录一次耗时, 默认64
+     */
+    public static final String SAMPLE_RATE_PROPERTY = "utils.instrumentation.sampleRate";
+
+    /**
+     * 是否开启统计, 启动时确定, 运行期间不能修改
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    private static final int SAMPLE_RATE = Math.max(1, Integer.getInteger(SAMPLE_RATE_PROPERTY, 64));
+
+    /**
+     * 是否发出JFR事件, Java 8早期版本等没有jdk.jfr时为false
+     */
+    private static final boolean JFR = ENABLED && isJfrAvailable();
+
+    private static final OperationCounter[] COUNTERS = new OperationCounter[Operation.values().length];
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new OperationCounter();
+        }
+    }
+
+    private Instrumentation() {
+    }
+
+    /**
+     * 功能：开始一次调用的计时
+     * 说明：未开启或本次不采样时返回0，不读取时钟
+     *
+     * @return 开始时间，传给end
+     */
+    public static long begin() {
+        if (!ENABLED) {
+            return 0L;
+        }
+        if (SAMPLE_RATE > 1 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0) {
+            return 0L;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * 功能：结束一次调用，累计次数与字节数，采样的调用同时记录耗时
+     * 示例：long begin = Instrumentation.begin(); ... Instrumentation.end(Operation.STREAM_COPY, begin, total);
+     *
+     * @param operation 操作类型
+     * @param begin     begin的返回值
+     * @param bytes     处理的数据量：流与文件为字节数，字符串为字符数，没有时为0
+     */
+    public static void end(Operation operation, long begin, long bytes) {
+        if (!ENABLED) {
+            return;
+        }
+        OperationCounter counter = COUNTERS[operation.ordinal()];
+        counter.count(bytes);
+        if (begin != 0L) {
+            long nanos = System.nanoTime() - begin;
+            counter.sample(nanos);
+            if (JFR) {
+                OperationEvent.emit(operation, bytes, nanos);
+            }
+        }
+    }
+
+    /**
+     * 功能：获取当前的统计快照，只包含有调用的操作
+     * 说明：快照期间仍在进行的调用可能部分计入，各项之间不保证严格一致
+     *
+     * @return 快照
+     */
+    public static Snapshot snapshot() {
+        List<OperationStats> operations = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            OperationCounter counter = COUNTERS[operation.ordinal()];
+            if (counter.getCount() > 0) {
+                operations.add(new OperationStats(operation, counter));
+            }
+        }
+        return new Snapshot(System.currentTimeMillis(), operations);
+    }
+
+    /**
+     * 功能：清空所有统计
+     */
+    public static void reset() {
+        for (OperationCounter counter : COUNTERS) {
+            counter.reset();
+        }
+    }
+
+    /**
+     * 功能：获取耗时的采样率
+     *
+     * @return 每N次调用采样一次
+     */
+    public static int getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 统计的操作类型
+     */
+    public enum Operation {
+        STREAM_COPY("StreamUtils.copy"),
+        STREAM_DIGEST("StreamUtils.digest"),
+        STREAM_COMPRESS("StreamUtils.copyCompressed"),
+        STREAM_DECOMPRESS("StreamUtils.copyDecompressed"),
+        STREAM_READ_LINES("StreamUtils.readingLineFormTextFile"),
+        STRING_MATCH("StringUtils.isEmail/isPhone/isLetter"),
+        STRING_HIDDEN("StringUtils.hidden"),
+        NUMBER_MATCH("NumberUtils.isNumber/isReal"),
+        NUMBER_ARITHMETIC("NumberUtils.add/sub/mul/div/round"),
+        DATE_DISPLAY("DateUtils.getDisplayTime"),
+        DATE_FORMAT("DateFormatUtils.format"),
+        DATE_PARSE("DateFormatUtils.parse"),
+        RANDOM_STRING("RandomUtils.nextString"),
+        RANDOM_NAME("RandomUtils.generateChinesePersonName"),
+        RANDOM_UUID("RandomUtils.uuid"),
+        FILE_PROCESS("FileUtils.processFiles"),
+        FILE_DUPLICATES("FileUtils.findDuplicates"),
+        FILE_DELETE("FileUtils.deletes");
+
+        private final String description;
+
+        Operation(String description) {
+            this.description = description;
+        }
+
+        /**
+         * 功能：获取统计的方法
+         *
+         * @return 类名与方法名
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * 一种操作的统计
+     */
+    public static final class OperationStats {
+        private final Operation operation;
+        private final long count;
+        private final long bytes;
+        private final long sampled;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] histogram;
+        private final long[] recent;
+
+        private OperationStats(Operation operation, OperationCounter counter) {
+            this.operation = operation;
+            this.count = counter.getCount();
+            this.bytes = counter.getBytes();
+            this.sampled = counter.getSampled();
+            this.totalNanos = counter.getTotalNanos();
+            this.maxNanos = counter.getMaxNanos();
+            this.histogram = counter.getHistogram();
+            this.recent = counter.getRecent();
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * 功能：获取调用次数
+         *
+         * @return 次数
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 功能：获取处理的字节数
+         *
+         * @return 字节数
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * 功能：获取记录了耗时的调用次数
+         *
+         * @return 次数
+         */
+        public long getSampledCount() {
+            return sampled;
+        }
+
+        /**
+         * 功能：获取采样调用的平均耗时
+         *
+         * @return 纳秒，没有样本时为0
+         */
+        public long getMeanNanos() {
+            return sampled == 0 ? 0 : totalNanos / sampled;
+        }
+
+        /**
+         * 功能：获取采样调用的最大耗时
+         *
+         * @return 纳秒
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * 功能：按最近的样本计算耗时的百分位数
+         * 示例：getPercentileNanos(99) → 最近样本的p99
+         *
+         * @param percentile 百分位，0-100
+         * @return 纳秒，没有样本时为0
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("百分位必须在0到100之间: " + percentile);
+            }
+            if (recent.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * recent.length) - 1;
+            return recent[Math.max(0, index)];
+        }
+
+        /**
+         * 功能：获取全部采样调用的耗时分布
+         * 说明：下标i的计数为耗时在[2^i, 2^(i+1))纳秒之间的样本数，下标0还包括0纳秒
+         *
+         * @return 64个桶的计数
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+    }
+
+    /**
+     * 统计快照
+     */
+    public static final class Snapshot {
+        private final long timestamp;
+        private final List<OperationStats> operations;
+
+        private Snapshot(long timestamp, List<OperationStats> operations) {
+            this.timestamp = timestamp;
+            this.operations = Collections.unmodifiableList(operations);
+        }
+
+        /**
+         * 功能：获取快照的时间
+         *
+         * @return 毫秒时间戳
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * 功能：获取有调用的操作的统计，按操作类型排序
+         *
+         * @return 统计列表
+         */
+        public List<OperationStats> getOperations() {
+            return operations;
+        }
+
+        /**
+         * 功能：获取指定操作的统计
+         *
+         * @param operation 操作类型
+         * @return 统计，没有调用时为null
+         */
+        public OperationStats get(Operation operation) {
+            for (OperationStats stats : operations) {
+                if (stats.operation == operation) {
+                    return stats;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 功能：按操作类型汇总调用次数
+         *
+         * @return 操作类型与次数
+         */
+        public Map<Operation, Long> getCounts() {
+            Map<Operation, Long> counts = new EnumMap<>(Operation.class);
+            for (OperationStats stats : operations) {
+                counts.put(stats.operation, stats.count);
+            }
+            return counts;
+        }
+
+        /**
+         * 功能：导出为CSV，首行为列名，耗时单位为纳秒
+         * 场景：定时写入日志或文件，导入表格或监控系统
+         *
+         * @return CSV文本
+         */
+        public String toCsv() {
+            StringBuilder csv = new StringBuilder("operation,count,bytes,sampled,mean_ns,p50_ns,p99_ns,max_ns\n");
+            for (OperationStats stats : operations) {
+                csv.append(stats.operation).append(',')
+                        .append(stats.count).append(',')
+                        .append(stats.bytes).append(',')
+                        .append(stats.sampled).append(',')
+                        .append(stats.getMeanNanos()).append(',')
+                        .append(stats.getPercentileNanos(50)).append(',')
+                        .append(stats.getPercentileNanos(99)).append(',')
+                        .append(stats.maxNanos).append('\n');
+            }
+            return csv.toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("%-20s %12s %14s %10s %10s %10s%n", "operation", "count", "bytes", "mean(us)", "p99(us)", "max(us)"));
+            for (OperationStats stats : operations) {
+                text.append(String.format("%-20s %12d %14d %10.1f %10.1f %10.1f%n", stats.operation, stats.count, stats.bytes,
+                        stats.getMeanNanos() / 1000.0, stats.getPercentileNanos(99) / 1000.0, stats.maxNanos / 1000.0));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package instrumentation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一种操作的计数器, 所有写入都是无锁的: 计数用分段的LongAdder, 最近样本写入环形缓冲区的下一个槽位
+ */
+final class OperationCounter {
+
+    /**
+     * 保留的最近样本数
+     */
+    private static final int RECENT_SIZE = 1024;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder sampled = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 按耗时的二进制位数分桶
+     */
+    private final LongAdder[] histogram = new LongAdder[64];
+
+    private final AtomicLongArray recent = new AtomicLongArray(RECENT_SIZE);
+
+    private final AtomicLong recentIndex = new AtomicLong();
+
+    OperationCounter() {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    void count(long processed) {
+        count.increment();
+        if (processed != 0) {
+            bytes.add(processed);
+        }
+    }
+
+    void sample(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        sampled.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram[Math.max(0, 63 - Long.numberOfLeadingZeros(nanos))].increment();
+        recent.lazySet((int) (recentIndex.getAndIncrement() & (RECENT_SIZE - 1)), nanos);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getBytes() {
+        return bytes.sum();
+    }
+
+    long getSampled() {
+        return sampled.sum();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    long[] getHistogram() {
+        long[] counts = new long[histogram.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * 最近的样本, 已排序
+     */
+    long[] getRecent() {
+        int size = (int) Math.min(RECENT_SIZE, recentIndex.get());
+        long[] samples = new long[size];
+        for (int i = 0; i < size; i++) {
+            samples[i] = recent.get(i);
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    void reset() {
+        count.reset();
+        bytes.reset();
+        sampled.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (LongAdder bucket : histogram) {
+            bucket.reset();
+        }
+        recentIndex.set(0);
+    }
+}
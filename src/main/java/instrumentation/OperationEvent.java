@@ -0,0 +1,44 @@
+package instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 工具类操作的JFR事件, 每个采样的调用一个, 以operation字段区分操作类型。
+ * 只在JFR录制中启用了utils.Operation时才创建事件; 不记录调用栈, 需要时可在录制配置中开启。
+ * 示例：java -Dutils.instrumentation=true -XX:StartFlightRecording=filename=utils.jfr ...
+ */
+@Name("utils.Operation")
+@Label("Utility Operation")
+@Category({"Utils"})
+@Description("StreamUtils、FileUtils等工具类的一次采样调用")
+@StackTrace(false)
+final class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Latency")
+    @Timespan
+    long latency;
+
+    static void emit(Instrumentation.Operation operation, long bytes, long nanos) {
+        OperationEvent event = new OperationEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation.name();
+            event.bytes = bytes;
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+}
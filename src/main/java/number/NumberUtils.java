@@ -3,6 +3,8 @@ package number;
 import java.math.BigDecimal;
 import java.util.regex.Pattern;
 
+import instrumentation.Instrumentation;
+import instrumentation.Instrumentation.Operation;
 import string.StringUtils;
 
 public class NumberUtils {
@@ -16,8 +18,11 @@ public class NumberUtils {
      */
     public static boolean isNumber(String src) {
         if (StringUtils.hasLength(src)) {
+            long begin = Instrumentation.begin();
             String regex = "^[0-9]*$";
-            return Pattern.matches(regex, src);
+            boolean matches = Pattern.matches(regex, src);
+            Instrumentation.end(Operation.NUMBER_MATCH, begin, src.length());
+            return matches;
         } else {
             return false;
         }
@@ -32,8 +37,11 @@ public class NumberUtils {
      */
     public static boolean isReal(String src) {
         if (StringUtils.hasLength(src)) {
+            long begin = Instrumentation.begin();
             String regex = "^\\-?([1-9][0-9]*|0)(\\.[0-9]+)?$";
-            return Pattern.matches(regex, src);
+            boolean matches = Pattern.matches(regex, src);
+            Instrumentation.end(Operation.NUMBER_MATCH, begin, src.length());
+            return matches;
         } else {
             return false;
         }
@@ -46,9 +54,12 @@ public class NumberUtils {
      * @return 两个参数的和
      */
     public static double add(double v1, double v2) {
+        long begin = Instrumentation.begin();
         BigDecimal bigDecimal1 = new BigDecimal(Double.toString(v1));
         BigDecimal bigDecimal2 = new BigDecimal(Double.toString(v2));
-        return bigDecimal1.add(bigDecimal2).doubleValue();
+        double result = bigDecimal1.add(bigDecimal2).doubleValue();
+        Instrumentation.end(Operation.NUMBER_ARITHMETIC, begin, 0);
+        return result;
     }
 
     /**
@@ -58,9 +69,12 @@ public class NumberUtils {
      * @return 两个参数的差
      */
     public static double sub(double v1, double v2) {
+        long begin = Instrumentation.begin();
         BigDecimal bigDecimal1 = new BigDecimal(Double.toString(v1));
         BigDecimal bigDecimal2 = new BigDecimal(Double.toString(v2));
-        return bigDecimal1.subtract(bigDecimal2).doubleValue();
+        double result = bigDecimal1.subtract(bigDecimal2).doubleValue();
+        Instrumentation.end(Operation.NUMBER_ARITHMETIC, begin, 0);
+        return result;
     }
 
     /**
@@ -70,9 +84,12 @@ public class NumberUtils {
      * @return 两个参数的积
      */
     public static double mul(double v1, double v2) {
+        long begin = Instrumentation.begin();
         BigDecimal bigDecimal1 = new BigDecimal(Double.toString(v1));
         BigDecimal bigDecimal2 = new BigDecimal(Double.toString(v2));
-        return bigDecimal1.multiply(bigDecimal2).doubleValue();
+        double result = bigDecimal1.multiply(bigDecimal2).doubleValue();
+        Instrumentation.end(Operation.NUMBER_ARITHMETIC, begin, 0);
+        return result;
     }
 
     /**
@@ -98,9 +115,12 @@ public class NumberUtils {
         if (scale < 0) {
             throw new IllegalArgumentException("小数位数必须为正整数或零");
         }
+        long begin = Instrumentation.begin();
         BigDecimal bigDecimal1 = new BigDecimal(Double.toString(v1));
         BigDecimal b2 = new BigDecimal(Double.toString(v2));
-        return bigDecimal1.divide(b2, scale, BigDecimal.ROUND_HALF_UP).doubleValue();
+        double result = bigDecimal1.divide(b2, scale, BigDecimal.ROUND_HALF_UP).doubleValue();
+        Instrumentation.end(Operation.NUMBER_ARITHMETIC, begin, 0);
+        return result;
     }
 
     /**
@@ -113,12 +133,15 @@ public class NumberUtils {
         if (scale < 0) {
             throw new IllegalArgumentException("小数位数必须为正整数或零");
         }
+        long begin = Instrumentation.begin();
         //将double类型转换为字符串类型
         BigDecimal bigDecimal = new BigDecimal(Double.toString(v));
         //将除数设置为1
         BigDecimal one = new BigDecimal("1");
         //返回传入数值除1并按照需要保留的位数返回
-        return bigDecimal.divide(one, scale, BigDecimal.ROUND_HALF_UP).doubleValue();
+        double result = bigDecimal.divide(one, scale, BigDecimal.ROUND_HALF_UP).doubleValue();
+        Instrumentation.end(Operation.NUMBER_ARITHMETIC, begin, 0);
+        return result;
 
     }
 }
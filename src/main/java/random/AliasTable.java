@@ -0,0 +1,158 @@
+package random;
+
+/**
+ * 按权重抽样的别名表(Vose别名方法)。
+ * 构建O(n), 每次抽样O(1): 一个64位随机数的高位选列, 低位与该列的阈值比较决定取本列还是别名列, 不分配任何对象。
+ * 构建后不可变, 可被多个线程共享, 抽样所用的RandomSource由调用方提供。
+ */
+public final class AliasTable {
+
+    /**
+     * 阈值的精度，与nextDouble相同为53位
+     */
+    private static final long ONE = 1L << 53;
+
+    /**
+     * 每列取本列的概率阈值，单位2^-53
+     */
+    private final long[] thresholds;
+
+    /**
+     * 每列的别名
+     */
+    private final int[] aliases;
+
+    /**
+     * 功能：按权重构建别名表
+     * 示例：new AliasTable(new double[]{7, 2, 1}) → 下标0、1、2的抽中概率为70%、20%、10%
+     *
+     * @param weights 权重，非负且总和大于0，不要求归一化
+     */
+    public AliasTable(double[] weights) {
+        int size = weights.length;
+        if (size == 0) {
+            throw new IllegalArgumentException("权重不能为空");
+        }
+        double sum = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("权重必须为非负有限数: " + weight);
+            }
+            sum += weight;
+        }
+        if (!(sum > 0) || Double.isInfinite(sum)) {
+            throw new IllegalArgumentException("权重总和不正确: " + sum);
+        }
+
+        thresholds = new long[size];
+        aliases = new int[size];
+        //缩放到平均值为1，小于1的列需要别名补足
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / sum;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            thresholds[less] = (long) (scaled[less] * ONE);
+            aliases[less] = more;
+            //大列补足小列后剩余的部分
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        //剩下的列概率为1，浮点误差导致留在small中的列同样处理
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            thresholds[index] = ONE;
+            aliases[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            thresholds[index] = ONE;
+            aliases[index] = index;
+        }
+    }
+
+    /**
+     * 功能：构建Zipf分布的别名表，下标k(从0开始)的权重为1/(k+1)^exponent
+     * 场景：模拟缓存、索引压测中的热点键，exponent越大越集中，常用值约为1
+     *
+     * @param size     取值个数
+     * @param exponent 指数，不小于0，0时为均匀分布
+     * @return 别名表
+     */
+    public static AliasTable zipf(int size, double exponent) {
+        if (size < 1) {
+            throw new IllegalArgumentException("取值个数必须大于0: " + size);
+        }
+        if (!(exponent >= 0) || Double.isInfinite(exponent)) {
+            throw new IllegalArgumentException("指数必须为非负有限数: " + exponent);
+        }
+        double[] weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            weights[i] = Math.pow(i + 1, -exponent);
+        }
+        return new AliasTable(weights);
+    }
+
+    /**
+     * 功能：按权重抽取一个下标
+     *
+     * @param source 生成器
+     * @return 下标
+     */
+    public int next(RandomSource source) {
+        long random = source.nextLong();
+        //高64位选列，低64位的高53位作为[0, 1)内的小数与阈值比较
+        int column = (int) RandomSource.unsignedMultiplyHigh(random, aliases.length);
+        long fraction = (random * aliases.length) >>> 11;
+        return fraction < thresholds[column] ? column : aliases[column];
+    }
+
+    /**
+     * 功能：使用RandomUtils当前的生成器按权重抽取一个下标，设置了种子时结果可重现
+     *
+     * @return 下标
+     */
+    public int next() {
+        return next(RandomUtils.source());
+    }
+
+    /**
+     * 功能：按权重抽取多个下标，写入目标数组
+     * 场景：预先生成压测的访问序列
+     *
+     * @param dest   目标数组
+     * @param offset 写入的起始位置
+     * @param length 个数
+     * @param source 生成器
+     */
+    public void next(int[] dest, int offset, int length, RandomSource source) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            dest[i] = next(source);
+        }
+    }
+
+    /**
+     * 功能：获取取值个数
+     *
+     * @return 取值个数
+     */
+    public int size() {
+        return aliases.length;
+    }
+}
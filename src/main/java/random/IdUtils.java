@@ -0,0 +1,236 @@
+package random;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间有序的128位ID(UUIDv7、ULID)。
+ * 毫秒时间戳后紧跟一个全局计数器, 同一毫秒内通过CAS递增, 保证全局单调递增且无锁;
+ * 其余随机位取自SecureRandomUtils的线程私有熵缓冲区。ID可编码为32位十六进制、26位Crockford Base32, 或以两个long存储。
+ */
+public final class IdUtils {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    /**
+     * Crockford Base32解码表，不区分大小写，I、L按1处理，O按0处理，非法字符为-1
+     */
+    private static final byte[] CROCKFORD_DECODE = new byte[128];
+
+    /**
+     * UUIDv7的计数器位数，占用rand_a字段
+     */
+    private static final int UUID_V7_COUNTER_BITS = 12;
+
+    /**
+     * ULID的计数器位数，占用随机部分的最高16位
+     */
+    private static final int ULID_COUNTER_BITS = 16;
+
+    /**
+     * UUIDv7的状态: 毫秒时间戳 << 12 | 计数器
+     */
+    private static final AtomicLong UUID_V7_STATE = new AtomicLong();
+
+    /**
+     * ULID的状态: 毫秒时间戳 << 16 | 计数器
+     */
+    private static final AtomicLong ULID_STATE = new AtomicLong();
+
+    static {
+        Arrays.fill(CROCKFORD_DECODE, (byte) -1);
+        for (int i = 0; i < CROCKFORD.length; i++) {
+            CROCKFORD_DECODE[CROCKFORD[i]] = (byte) i;
+            CROCKFORD_DECODE[Character.toLowerCase(CROCKFORD[i])] = (byte) i;
+        }
+        CROCKFORD_DECODE['I'] = 1;
+        CROCKFORD_DECODE['i'] = 1;
+        CROCKFORD_DECODE['L'] = 1;
+        CROCKFORD_DECODE['l'] = 1;
+        CROCKFORD_DECODE['O'] = 0;
+        CROCKFORD_DECODE['o'] = 0;
+    }
+
+    private IdUtils() {
+    }
+
+    /**
+     * 功能：获取32位十六进制的UUIDv7，按生成时间排序
+     * 场景：数据库主键，按时间有序插入，避免随机UUID造成的B树页分裂
+     *
+     * @return 不带横线的UUIDv7
+     */
+    public static String uuidV7() {
+        long[] id = new long[2];
+        nextUuidV7(id, 0);
+        return toHex(id[0], id[1]);
+    }
+
+    /**
+     * 功能：获取UUIDv7对象
+     *
+     * @return UUIDv7
+     */
+    public static UUID nextUuidV7() {
+        long[] id = new long[2];
+        nextUuidV7(id, 0);
+        return new UUID(id[0], id[1]);
+    }
+
+    /**
+     * 功能：生成UUIDv7，高64位与低64位依次写入数组，不创建任何对象
+     * 场景：以二进制(两个long或16字节)存储ID
+     *
+     * @param dest   目标数组
+     * @param offset 写入的起始位置
+     */
+    public static void nextUuidV7(long[] dest, int offset) {
+        long state = nextState(UUID_V7_STATE, UUID_V7_COUNTER_BITS);
+        //版本7写在第48-51位，计数器占用rand_a
+        dest[offset] = (state >>> UUID_V7_COUNTER_BITS) << 16 | 0x7000L | (state & 0xFFFL);
+        //变体10写在最高两位，其余62位为安全随机数
+        dest[offset + 1] = (SecureRandomUtils.nextLong() >>> 2) | 0x8000000000000000L;
+    }
+
+    /**
+     * 功能：获取26位Crockford Base32编码的ULID，按生成时间排序
+     *
+     * @return ULID
+     */
+    public static String ulid() {
+        long[] id = new long[2];
+        nextUlid(id, 0);
+        return toUlid(id[0], id[1]);
+    }
+
+    /**
+     * 功能：生成ULID，高64位与低64位依次写入数组，不创建任何对象
+     *
+     * @param dest   目标数组
+     * @param offset 写入的起始位置
+     */
+    public static void nextUlid(long[] dest, int offset) {
+        //高64位: 48位毫秒时间戳 + 16位计数器，低64位全部为随机数
+        dest[offset] = nextState(ULID_STATE, ULID_COUNTER_BITS);
+        dest[offset + 1] = SecureRandomUtils.nextLong();
+    }
+
+    /**
+     * 功能：获取UUIDv7或ULID中的毫秒时间戳
+     *
+     * @param mostSignificantBits 高64位
+     * @return 毫秒时间戳
+     */
+    public static long getTimestamp(long mostSignificantBits) {
+        return mostSignificantBits >>> 16;
+    }
+
+    /**
+     * 功能：128位ID编码为32位十六进制字符串
+     *
+     * @param mostSignificantBits  高64位
+     * @param leastSignificantBits 低64位
+     * @return 十六进制字符串
+     */
+    public static String toHex(long mostSignificantBits, long leastSignificantBits) {
+        char[] result = new char[32];
+        toHex(mostSignificantBits, leastSignificantBits, result, 0);
+        return new String(result);
+    }
+
+    /**
+     * 功能：128位ID编码为32位十六进制，写入字符数组
+     *
+     * @param mostSignificantBits  高64位
+     * @param leastSignificantBits 低64位
+     * @param dest                 目标数组
+     * @param offset               写入的起始位置
+     */
+    public static void toHex(long mostSignificantBits, long leastSignificantBits, char[] dest, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            dest[offset + i] = HEX[(int) mostSignificantBits & 0xF];
+            dest[offset + 16 + i] = HEX[(int) leastSignificantBits & 0xF];
+            mostSignificantBits >>>= 4;
+            leastSignificantBits >>>= 4;
+        }
+    }
+
+    /**
+     * 功能：128位ID编码为26位Crockford Base32字符串
+     *
+     * @param mostSignificantBits  高64位
+     * @param leastSignificantBits 低64位
+     * @return ULID字符串
+     */
+    public static String toUlid(long mostSignificantBits, long leastSignificantBits) {
+        char[] result = new char[26];
+        toUlid(mostSignificantBits, leastSignificantBits, result, 0);
+        return new String(result);
+    }
+
+    /**
+     * 功能：128位ID编码为26位Crockford Base32，写入字符数组
+     *
+     * @param mostSignificantBits  高64位
+     * @param leastSignificantBits 低64位
+     * @param dest                 目标数组
+     * @param offset               写入的起始位置
+     */
+    public static void toUlid(long mostSignificantBits, long leastSignificantBits, char[] dest, int offset) {
+        long high = mostSignificantBits;
+        long low = leastSignificantBits;
+        //从最低位开始每5位一个字符，第一个字符只有3位
+        for (int i = 25; i >= 0; i--) {
+            dest[offset + i] = CROCKFORD[(int) low & 31];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+    }
+
+    /**
+     * 功能：解析26位ULID字符串，高64位与低64位依次写入数组
+     *
+     * @param ulid   ULID字符串
+     * @param dest   目标数组
+     * @param offset 写入的起始位置
+     */
+    public static void parseUlid(CharSequence ulid, long[] dest, int offset) {
+        if (ulid.length() != 26) {
+            throw new IllegalArgumentException("ULID长度必须为26: " + ulid);
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 26; i++) {
+            char c = ulid.charAt(i);
+            int value = c < 128 ? CROCKFORD_DECODE[c] : -1;
+            if (value < 0 || (i == 0 && value > 7)) {
+                throw new IllegalArgumentException("ULID格式不正确: " + ulid);
+            }
+            high = (high << 5) | (low >>> 59);
+            low = (low << 5) | value;
+        }
+        dest[offset] = high;
+        dest[offset + 1] = low;
+    }
+
+    /**
+     * 功能：无锁地推进“时间戳 + 计数器”状态
+     * 时钟前进时计数器从一个不超过一半容量的随机值开始，同一毫秒或时钟回拨时计数器加一，
+     * 计数器溢出时自然进位到时间戳，借用下一毫秒，保证结果严格递增
+     */
+    private static long nextState(AtomicLong state, int counterBits) {
+        long now = System.currentTimeMillis();
+        long start = (now << counterBits) | (ThreadLocalRandom.current().nextLong() & ((1L << (counterBits - 1)) - 1));
+        while (true) {
+            long current = state.get();
+            long next = start > current ? start : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+}
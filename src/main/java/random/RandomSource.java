@@ -0,0 +1,482 @@
+package random;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 可设定种子、可确定性拆分的随机数生成器。
+ * 实例不是线程安全的, 多线程使用时应先split()为每个线程拆分出独立的生成器;
+ * 有界随机数使用Lemire的乘法取高位算法, 无偏且极少需要重试。
+ */
+public abstract class RandomSource {
+
+    /**
+     * 黄金分割比例对应的64位奇数, 用于SplitMix64步进
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * 基于ThreadLocalRandom的共享实例
+     */
+    private static final RandomSource THREAD_LOCAL = new ThreadLocalSource();
+
+    /**
+     * 功能：获取下一个64位随机数，所有其它方法都基于它实现
+     *
+     * @return 随机数
+     */
+    public abstract long nextLong();
+
+    /**
+     * 功能：确定性地拆分出一个新的生成器，新生成器与本生成器的序列互相独立
+     * 场景：为每个工作线程拆分出各自的生成器，相同种子、相同拆分顺序得到相同结果
+     *
+     * @return 新的生成器
+     */
+    public abstract RandomSource split();
+
+    /**
+     * 功能：一次拆分出多个生成器
+     *
+     * @param count 个数
+     * @return 新的生成器数组
+     */
+    public RandomSource[] split(int count) {
+        RandomSource[] sources = new RandomSource[count];
+        for (int i = 0; i < count; i++) {
+            sources[i] = split();
+        }
+        return sources;
+    }
+
+    /**
+     * 功能：获取下一个32位随机数
+     *
+     * @return 随机数
+     */
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * 功能：获取[0, bound)之间的随机数
+     *
+     * @param bound 上限，不包含，必须为正数
+     * @return 随机数
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("上限必须为正数!");
+        }
+        //32位随机数乘以上限，高32位即为结果，低32位落在偏差区间时重试
+        long product = (nextInt() & 0xFFFFFFFFL) * bound;
+        long low = product & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                product = (nextInt() & 0xFFFFFFFFL) * bound;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    /**
+     * 功能：获取[min, max]之间的随机数，与RandomUtils一致包含最大值
+     * 示例：min=5,max=10，那么返回5-10(包括5和10)之间任意一个数
+     *
+     * @param min 最小值，包含
+     * @param max 最大值，包含
+     * @return 随机数
+     */
+    public int nextInt(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("最小值不能大于最大值!");
+        }
+        long span = (long) max - min + 1;
+        if (span <= Integer.MAX_VALUE) {
+            return min + nextInt((int) span);
+        }
+        return (int) (min + nextLong(span));
+    }
+
+    /**
+     * 功能：获取[0, bound)之间的随机数
+     *
+     * @param bound 上限，不包含，必须为正数
+     * @return 随机数
+     */
+    public long nextLong(long bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("上限必须为正数!");
+        }
+        long random = nextLong();
+        long low = random * bound;
+        if (Long.compareUnsigned(low, bound) < 0) {
+            long threshold = Long.remainderUnsigned(-bound, bound);
+            while (Long.compareUnsigned(low, threshold) < 0) {
+                random = nextLong();
+                low = random * bound;
+            }
+        }
+        return unsignedMultiplyHigh(random, bound);
+    }
+
+    /**
+     * 功能：获取[min, max]之间的随机数，包含最大值
+     *
+     * @param min 最小值，包含
+     * @param max 最大值，包含
+     * @return 随机数
+     */
+    public long nextLong(long min, long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("最小值不能大于最大值!");
+        }
+        long span = max - min + 1;
+        if (span > 0) {
+            return min + nextLong(span);
+        }
+        if (span == 0) {
+            //覆盖全部long取值
+            return nextLong();
+        }
+        //范围超过Long.MAX_VALUE，直接取随机数并丢弃范围外的值，期望重试次数小于2
+        long random;
+        do {
+            random = nextLong();
+        } while (random < min || random > max);
+        return random;
+    }
+
+    /**
+     * 功能：获取[0, 1)之间的随机小数
+     *
+     * @return 随机小数
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 功能：获取随机布尔值
+     *
+     * @return 随机布尔值
+     */
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * 功能：用[min, max]之间的随机数填充数组
+     *
+     * @param dest 目标数组
+     * @param min  最小值，包含
+     * @param max  最大值，包含
+     */
+    public void fill(int[] dest, int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("最小值不能大于最大值!");
+        }
+        long span = (long) max - min + 1;
+        if (span <= Integer.MAX_VALUE) {
+            int bound = (int) span;
+            for (int i = 0; i < dest.length; i++) {
+                dest[i] = min + nextInt(bound);
+            }
+        } else {
+            for (int i = 0; i < dest.length; i++) {
+                dest[i] = (int) (min + nextLong(span));
+            }
+        }
+    }
+
+    /**
+     * 功能：用[min, max]之间的随机数填充数组
+     *
+     * @param dest 目标数组
+     * @param min  最小值，包含
+     * @param max  最大值，包含
+     */
+    public void fill(long[] dest, long min, long max) {
+        for (int i = 0; i < dest.length; i++) {
+            dest[i] = nextLong(min, max);
+        }
+    }
+
+    /**
+     * 功能：用[min, max)之间的随机小数填充数组
+     *
+     * @param dest 目标数组
+     * @param min  最小值，包含
+     * @param max  最大值，不包含
+     */
+    public void fill(double[] dest, double min, double max) {
+        if (!(min < max)) {
+            throw new IllegalArgumentException("最小值必须小于最大值!");
+        }
+        double range = max - min;
+        for (int i = 0; i < dest.length; i++) {
+            double value = min + nextDouble() * range;
+            //舍入可能得到max，此时取小于max的最大值
+            dest[i] = value < max ? value : Math.nextDown(max);
+        }
+    }
+
+    /**
+     * 功能：用指定字母表中的随机字符填充字符数组
+     * 说明：每个64位随机数按定点小数逐位展开，一次产生多个字符，无需拒绝重采样；
+     * 字母表长度为2的幂时完全无偏，否则每个字符的偏差小于2^-26
+     *
+     * @param dest     目标数组
+     * @param offset   写入的起始位置
+     * @param length   字符个数
+     * @param alphabet 字母表，长度为2-65536
+     */
+    public void nextChars(char[] dest, int offset, int length, char[] alphabet) {
+        nextSymbols(dest, alphabet, null, null, offset, length, alphabet.length);
+    }
+
+    /**
+     * 功能：用指定字母表中的随机字节填充字节数组
+     * 场景：直接生成ASCII编码的随机码
+     *
+     * @param dest     目标数组
+     * @param offset   写入的起始位置
+     * @param length   字节个数
+     * @param alphabet 字母表，长度为2-256
+     */
+    public void nextBytes(byte[] dest, int offset, int length, byte[] alphabet) {
+        nextSymbols(null, null, dest, alphabet, offset, length, alphabet.length);
+    }
+
+    /**
+     * 逐字生成的公共实现, 字符与字节两组参数只有一组不为空
+     */
+    private void nextSymbols(char[] chars, char[] charAlphabet, byte[] bytes, byte[] byteAlphabet,
+                             int offset, int length, int size) {
+        if (size < 2 || size > (bytes != null ? 256 : 65536)) {
+            throw new IllegalArgumentException("字母表长度不正确: " + size);
+        }
+        int end = offset + length;
+        int position = offset;
+        if ((size & (size - 1)) == 0) {
+            //长度为2的幂，直接按位截取
+            int bits = Integer.numberOfTrailingZeros(size);
+            int perDraw = 64 / bits;
+            int mask = size - 1;
+            while (position < end) {
+                long random = nextLong();
+                for (int i = 0; i < perDraw && position < end; i++) {
+                    int index = (int) random & mask;
+                    random >>>= bits;
+                    if (bytes != null) {
+                        bytes[position++] = byteAlphabet[index];
+                    } else {
+                        chars[position++] = charAlphabet[index];
+                    }
+                }
+            }
+            return;
+        }
+        //把随机数视为[0, 1)的64位定点小数，每乘一次字母表长度，整数部分即为一个字符；
+        //每个随机数只用掉32位精度，剩余精度保证偏差足够小
+        int perDraw = Math.max(1, (int) (32 / (Math.log(size) / Math.log(2))));
+        while (position < end) {
+            long random = nextLong();
+            for (int i = 0; i < perDraw && position < end; i++) {
+                int index = (int) unsignedMultiplyHigh(random, size);
+                random *= size;
+                if (bytes != null) {
+                    bytes[position++] = byteAlphabet[index];
+                } else {
+                    chars[position++] = charAlphabet[index];
+                }
+            }
+        }
+    }
+
+    /**
+     * 功能：创建SplitMix64生成器，速度最快，与SplittableRandom同一算法
+     *
+     * @param seed 种子
+     * @return 生成器
+     */
+    public static RandomSource splitMix64(long seed) {
+        return new SplitMix64(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * 功能：创建xoroshiro128++生成器，周期2^128-1，统计质量好
+     *
+     * @param seed 种子
+     * @return 生成器
+     */
+    public static RandomSource xoroshiro128PlusPlus(long seed) {
+        long state0 = mix64(seed += GOLDEN_GAMMA);
+        long state1 = mix64(seed + GOLDEN_GAMMA);
+        return new Xoroshiro128PlusPlus(state0, state1);
+    }
+
+    /**
+     * 功能：创建PCG32(XSH-RR)生成器，状态小，可通过流编号得到互不相关的序列
+     *
+     * @param seed 种子
+     * @return 生成器
+     */
+    public static RandomSource pcg32(long seed) {
+        return new Pcg32(seed, mix64(seed ^ GOLDEN_GAMMA));
+    }
+
+    /**
+     * 功能：使用默认算法(xoroshiro128++)创建可重现的生成器
+     *
+     * @param seed 种子
+     * @return 生成器
+     */
+    public static RandomSource of(long seed) {
+        return xoroshiro128PlusPlus(seed);
+    }
+
+    /**
+     * 功能：获取基于ThreadLocalRandom的共享生成器，可在任意线程使用，但不能设定种子
+     *
+     * @return 生成器
+     */
+    public static RandomSource threadLocal() {
+        return THREAD_LOCAL;
+    }
+
+    /**
+     * 功能：无符号64位乘法的高64位
+     */
+    static long unsignedMultiplyHigh(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL;
+        long y1 = y >>> 32;
+        long w0 = x0 * y0;
+        long t = x1 * y0 + (w0 >>> 32);
+        long w1 = (t & 0xFFFFFFFFL) + x0 * y1;
+        return x1 * y1 + (t >>> 32) + (w1 >>> 32);
+    }
+
+    /**
+     * 功能：SplitMix64的混淆函数(Stafford variant 13)
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * SplitMix64生成器
+     */
+    private static final class SplitMix64 extends RandomSource {
+        private long seed;
+        private final long gamma;
+
+        private SplitMix64(long seed, long gamma) {
+            this.seed = seed;
+            this.gamma = gamma;
+        }
+
+        @Override
+        public long nextLong() {
+            return mix64(seed += gamma);
+        }
+
+        @Override
+        public RandomSource split() {
+            long newSeed = nextLong();
+            //步长必须为奇数，且二进制位分布足够随机
+            long newGamma = mix64(seed += gamma) | 1L;
+            if (Long.bitCount(newGamma ^ (newGamma >>> 1)) < 24) {
+                newGamma ^= 0xAAAAAAAAAAAAAAAAL;
+            }
+            return new SplitMix64(newSeed, newGamma);
+        }
+    }
+
+    /**
+     * xoroshiro128++生成器
+     */
+    private static final class Xoroshiro128PlusPlus extends RandomSource {
+        private long state0;
+        private long state1;
+
+        private Xoroshiro128PlusPlus(long state0, long state1) {
+            //状态不能全为0
+            this.state0 = state0;
+            this.state1 = (state0 | state1) == 0 ? GOLDEN_GAMMA : state1;
+        }
+
+        @Override
+        public long nextLong() {
+            long s0 = state0;
+            long s1 = state1;
+            long result = Long.rotateLeft(s0 + s1, 17) + s0;
+            s1 ^= s0;
+            state0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+            state1 = Long.rotateLeft(s1, 28);
+            return result;
+        }
+
+        @Override
+        public RandomSource split() {
+            return new Xoroshiro128PlusPlus(mix64(nextLong()), mix64(nextLong()));
+        }
+    }
+
+    /**
+     * PCG32(XSH-RR)生成器，64位状态，每次输出32位
+     */
+    private static final class Pcg32 extends RandomSource {
+        private static final long MULTIPLIER = 6364136223846793005L;
+        private long state;
+        private final long increment;
+
+        private Pcg32(long seed, long stream) {
+            //增量必须为奇数，不同的增量对应不同的序列
+            this.increment = (stream << 1) | 1L;
+            this.state = 0;
+            nextInt();
+            this.state += seed;
+            nextInt();
+        }
+
+        @Override
+        public int nextInt() {
+            long old = state;
+            state = old * MULTIPLIER + increment;
+            int xorShifted = (int) (((old >>> 18) ^ old) >>> 27);
+            int rotation = (int) (old >>> 59);
+            return Integer.rotateRight(xorShifted, rotation);
+        }
+
+        @Override
+        public long nextLong() {
+            return ((long) nextInt() << 32) | (nextInt() & 0xFFFFFFFFL);
+        }
+
+        @Override
+        public RandomSource split() {
+            return new Pcg32(nextLong(), nextLong());
+        }
+    }
+
+    /**
+     * 基于ThreadLocalRandom的生成器，无状态，可被多个线程共享
+     */
+    private static final class ThreadLocalSource extends RandomSource {
+        @Override
+        public long nextLong() {
+            return ThreadLocalRandom.current().nextLong();
+        }
+
+        @Override
+        public RandomSource split() {
+            return xoroshiro128PlusPlus(nextLong());
+        }
+    }
+}
@@ -1,17 +1,78 @@
 package random;
 
-import java.util.Random;
-import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+import instrumentation.Instrumentation;
+import instrumentation.Instrumentation.Operation;
 
 public class RandomUtils {
+
+    /**
+     * 设定种子后的根生成器，为空表示未设定种子，此时使用ThreadLocalRandom
+     */
+    private static volatile RandomSource seededRoot;
+
+    /**
+     * 设定种子后各线程从根生成器拆分出的生成器
+     */
+    private static final ThreadLocal<SeededSource> SEEDED_SOURCES = new ThreadLocal<>();
+
+    /**
+     * 功能：设定种子，此后本类的随机结果可以重现
+     * 场景：可重现的压测数据
+     * 说明：每个线程在首次使用时从根生成器依次拆分出自己的生成器，单线程或线程首次使用顺序固定时结果完全可重现；
+     * 需要严格按工作线程重现时，请使用RandomSource.of(seed).split(n)为每个工作线程分配生成器
+     *
+     * @param seed 种子
+     */
+    public static void setSeed(long seed) {
+        seededRoot = RandomSource.of(seed);
+    }
+
+    /**
+     * 功能：清除种子，恢复使用ThreadLocalRandom
+     */
+    public static void clearSeed() {
+        seededRoot = null;
+    }
+
+    /**
+     * 功能：获取当前线程使用的生成器
+     *
+     * @return 生成器
+     */
+    static RandomSource source() {
+        RandomSource root = seededRoot;
+        if (root == null) {
+            return RandomSource.threadLocal();
+        }
+        SeededSource seeded = SEEDED_SOURCES.get();
+        if (seeded == null || seeded.root != root) {
+            //种子变更后重新拆分
+            synchronized (root) {
+                seeded = new SeededSource(root, root.split());
+            }
+            SEEDED_SOURCES.set(seeded);
+        }
+        return seeded.source;
+    }
+
     /**
      * 功能：获取随机正整数
      *
      * @return 正整数
      */
     public static int nextInt() {
-        int value = ThreadLocalRandom.current().nextInt();
+        int value = source().nextInt();
         return (value & 0x7FFFFFFF) | 0x1000100;
     }
 
@@ -23,8 +84,7 @@ public class RandomUtils {
      * @return 随机数
      */
     public static int nextInt(int max) {
-        int value = ThreadLocalRandom.current().nextInt(max + 1);
-        return value;
+        return source().nextInt(0, max);
     }
 
     /**
@@ -36,9 +96,9 @@ public class RandomUtils {
      * @return 随机数
      */
     public static int nextInt(int min, int max) {
-        int value = ThreadLocalRandom.current().nextInt((max + 1) - min);
-        return min + value;
+        return source().nextInt(min, max);
     }
+
     /**
      * 功能：获取指定最大范围的随机正整数
      * 示例：min=5,max=10，那么返回5-10(包括5和10)之间任意一个数, 此数为long类型
@@ -47,40 +107,289 @@ public class RandomUtils {
      * @param max 最大范围，要包含最大范围值。
      * @return 随机数
      */
-    public static long nextLong(long min, long max){
-        long rangeLong = min + (((long) (new Random().nextDouble() * (max - min))));
-        return rangeLong;
+    public static long nextLong(long min, long max) {
+        return source().nextLong(min, max);
+    }
+
+    /**
+     * 功能：批量获取指定范围的随机整数，填充到数组中
+     *
+     * @param dest 目标数组
+     * @param min  最小范围，要包含最小范围值。
+     * @param max  最大范围，要包含最大范围值。
+     */
+    public static void fill(int[] dest, int min, int max) {
+        source().fill(dest, min, max);
+    }
+
+    /**
+     * 功能：批量获取指定范围的随机long整数，填充到数组中
+     *
+     * @param dest 目标数组
+     * @param min  最小范围，要包含最小范围值。
+     * @param max  最大范围，要包含最大范围值。
+     */
+    public static void fill(long[] dest, long min, long max) {
+        source().fill(dest, min, max);
+    }
+
+    /**
+     * 功能：批量获取指定范围的随机小数，填充到数组中
+     *
+     * @param dest 目标数组
+     * @param min  最小范围，包含最小范围值。
+     * @param max  最大范围，不包含最大范围值。
+     */
+    public static void fill(double[] dest, double min, double max) {
+        source().fill(dest, min, max);
     }
+
     /**
-     * 功能：在最小值与最大值之间截取随机数
+     * 功能：在最小值与最大值之间截取随机数，结果不重复且顺序随机
      * 场景：在List集合中截取多个的随机记录。
+     * 说明：只占用与截取个数成正比的内存，与范围大小无关；范围不大于截取个数时按顺序返回整个范围；
+     * 否则截取个数不能超过2^29
      *
-     * @param min 起始值。
-     * @param max 结束值。
+     * @param min       起始值，包含。
+     * @param max       结束值，不包含。
+     * @param subLength 截取个数。
      * @return 多个随机数
      */
     public static int[] subIntegers(int min, int max, int subLength) {
-        int size = max - min;
-        int[] array = new int[size];
-        for (int i = 0; i < size; i++) {
-            array[i] = min + i;
+        if (min > max || subLength < 0) {
+            throw new IllegalArgumentException("范围或截取个数不正确!");
         }
+        long size = (long) max - min;
         if (size <= subLength) {
+            int[] array = new int[(int) size];
+            for (int i = 0; i < size; i++) {
+                array[i] = min + i;
+            }
             return array;
         }
-        int temp1, temp2, len = array.length;
-        int subRandoms[] = new int[subLength];
+        //稀疏的Fisher–Yates洗牌：只记录被交换过的位置，未记录的位置i上的值就是i
+        SparseSwaps swaps = new SparseSwaps(subLength);
+        int[] subRandoms = new int[subLength];
+        RandomSource random = source();
         for (int i = 0; i < subLength; i++) {
-            temp1 = Math.abs(nextInt()) % len;
-            subRandoms[i] = array[temp1];
-            temp2 = array[temp1];
-            array[temp1] = array[len - 1];
-            array[len - 1] = temp2;
-            len--;
+            long j = i + random.nextLong(size - i);
+            long picked = swaps.get(j);
+            swaps.put(j, swaps.get(i));
+            subRandoms[i] = (int) (min + picked);
         }
         return subRandoms;
     }
 
+    /**
+     * 功能：从未知长度的数据中等概率地抽取指定个数的元素(蓄水池抽样)，只遍历一次
+     * 场景：从超大的查询结果中抽样
+     * 说明：使用Algorithm L按几何分布跳过元素，随机数的消耗与k*log(n/k)成正比；结果顺序不固定
+     *
+     * @param iterator 数据
+     * @param k        抽取个数
+     * @return 抽样结果，数据不足k个时返回全部
+     */
+    public static <T> List<T> sample(Iterator<? extends T> iterator, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("抽取个数不能为负数!");
+        }
+        List<T> reservoir = new ArrayList<>(k);
+        while (reservoir.size() < k && iterator.hasNext()) {
+            reservoir.add(iterator.next());
+        }
+        if (k == 0 || !iterator.hasNext()) {
+            return reservoir;
+        }
+        RandomSource random = source();
+        double w = Math.exp(Math.log(nextOpenDouble(random)) / k);
+        while (true) {
+            //跳过的元素个数服从几何分布
+            long skip = (long) Math.floor(Math.log(nextOpenDouble(random)) / Math.log1p(-w));
+            for (long i = 0; i < skip; i++) {
+                if (!iterator.hasNext()) {
+                    return reservoir;
+                }
+                iterator.next();
+            }
+            if (!iterator.hasNext()) {
+                return reservoir;
+            }
+            reservoir.set(random.nextInt(k), iterator.next());
+            w *= Math.exp(Math.log(nextOpenDouble(random)) / k);
+        }
+    }
+
+    /**
+     * 功能：从流中等概率地抽取指定个数的元素，只遍历一次
+     *
+     * @param stream 数据流
+     * @param k      抽取个数
+     * @return 抽样结果，数据不足k个时返回全部
+     */
+    public static <T> List<T> sample(Stream<? extends T> stream, int k) {
+        return sample(stream.iterator(), k);
+    }
+
+    /**
+     * 功能：从未知长度的数据中按权重抽取指定个数的元素(加权蓄水池抽样)，只遍历一次
+     * 说明：使用Efraimidis–Spirakis的A-ExpJ算法，元素被选中的概率与权重成正比；权重不大于0的元素不会被选中；结果顺序不固定
+     *
+     * @param iterator 数据
+     * @param weigher  计算元素权重的函数
+     * @param k        抽取个数
+     * @return 抽样结果，权重为正的数据不足k个时返回全部权重为正的元素
+     */
+    public static <T> List<T> weightedSample(Iterator<? extends T> iterator, ToDoubleFunction<? super T> weigher, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("抽取个数不能为负数!");
+        }
+        List<T> result = new ArrayList<>(k);
+        if (k == 0) {
+            return result;
+        }
+        RandomSource random = source();
+        //小顶堆，保存当前键值最大的k个元素，键值取对数: log(u) / weight
+        PriorityQueue<WeightedItem<T>> heap = new PriorityQueue<>(k);
+        while (heap.size() < k && iterator.hasNext()) {
+            T item = iterator.next();
+            double weight = weigher.applyAsDouble(item);
+            if (weight > 0) {
+                heap.add(new WeightedItem<T>(Math.log(nextOpenDouble(random)) / weight, item));
+            }
+        }
+        if (heap.size() == k) {
+            //下一次替换前需要跳过的权重总和
+            double threshold = Math.log(nextOpenDouble(random)) / heap.peek().key;
+            while (iterator.hasNext()) {
+                T item = iterator.next();
+                double weight = weigher.applyAsDouble(item);
+                if (weight <= 0) {
+                    continue;
+                }
+                threshold -= weight;
+                if (threshold > 0) {
+                    continue;
+                }
+                //新元素的键值在(最小键值^weight, 1)之间均匀分布
+                double low = Math.exp(heap.peek().key * weight);
+                double u = low + (1 - low) * nextOpenDouble(random);
+                heap.poll();
+                heap.add(new WeightedItem<T>(Math.log(u) / weight, item));
+                threshold = Math.log(nextOpenDouble(random)) / heap.peek().key;
+            }
+        }
+        for (WeightedItem<T> weightedItem : heap) {
+            result.add(weightedItem.item);
+        }
+        return result;
+    }
+
+    /**
+     * 功能：从流中按权重抽取指定个数的元素，只遍历一次
+     *
+     * @param stream  数据流
+     * @param weigher 计算元素权重的函数
+     * @param k       抽取个数
+     * @return 抽样结果
+     */
+    public static <T> List<T> weightedSample(Stream<? extends T> stream, ToDoubleFunction<? super T> weigher, int k) {
+        return weightedSample(stream.iterator(), weigher, k);
+    }
+
+    /**
+     * 获取(0, 1)之间的随机小数，用于取对数
+     */
+    private static double nextOpenDouble(RandomSource random) {
+        double value;
+        do {
+            value = random.nextDouble();
+        } while (value == 0);
+        return value;
+    }
+
+    /**
+     * 线程拆分出的生成器及其所属的根生成器
+     */
+    private static final class SeededSource {
+        private final RandomSource root;
+        private final RandomSource source;
+
+        private SeededSource(RandomSource root, RandomSource source) {
+            this.root = root;
+            this.source = source;
+        }
+    }
+
+    /**
+     * 加权抽样中带键值的元素
+     */
+    private static final class WeightedItem<T> implements Comparable<WeightedItem<T>> {
+        private final double key;
+        private final T item;
+
+        private WeightedItem(double key, T item) {
+            this.key = key;
+            this.item = item;
+        }
+
+        @Override
+        public int compareTo(WeightedItem<T> other) {
+            return Double.compare(key, other.key);
+        }
+    }
+
+    /**
+     * 稀疏洗牌中记录被交换位置的开放寻址哈希表，未记录的位置的值等于位置本身
+     */
+    private static final class SparseSwaps {
+        /**
+         * 数组长度取2的幂，最大为2^30，按负载因子0.5最多容纳2^29个位置
+         */
+        private static final long MAX_CAPACITY = 1L << 30;
+
+        private final long[] keys;
+        private final long[] values;
+        private final boolean[] used;
+        private final int mask;
+
+        private SparseSwaps(int expected) {
+            //每次洗牌最多写入一个新位置，负载因子不超过0.5；按long计算，避免个数超过2^30时溢出
+            long size = Long.highestOneBit(Math.max(2L, expected) * 2 - 1) << 1;
+            if (size > MAX_CAPACITY) {
+                throw new IllegalArgumentException("截取个数不能超过" + (MAX_CAPACITY >> 1) + ": " + expected);
+            }
+            int capacity = (int) size;
+            keys = new long[capacity];
+            values = new long[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        private long get(long key) {
+            for (int slot = slot(key); used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return key;
+        }
+
+        private void put(long key, long value) {
+            int slot = slot(key);
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+    }
+
     static char[] tables = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
 
     /**
@@ -101,37 +410,39 @@ public class RandomUtils {
      * @return 随机字符串
      */
     public static String nextString(int length) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            result.append(nextCharacter());
-        }
-        return result.toString();
+        return nextString(length, tables);
+    }
 
+    /**
+     * 功能：获取指定长度、由指定字母表中的字符组成的随机字符串
+     * 示例：nextString(6, "0123456789".toCharArray()) → 6位数字码
+     * 说明：每个64位随机数可生成多个字符，适合批量生成大量编码；需要防猜测的令牌请使用SecureRandomUtils
+     *
+     * @param length   长度。
+     * @param alphabet 字母表。
+     * @return 随机字符串
+     */
+    public static String nextString(int length, char[] alphabet) {
+        long begin = Instrumentation.begin();
+        char[] result = new char[length];
+        source().nextChars(result, 0, length, alphabet);
+        String text = new String(result);
+        Instrumentation.end(Operation.RANDOM_STRING, begin, length);
+        return text;
     }
 
+    /**
+     * GB2312一级汉字表(B0A1-D7F9，共3755个常用汉字)，类加载时一次解码
+     */
+    private static final char[] GB2312_LEVEL1 = decodeGb2312Level1();
+
     /**
      * 功能：获取一个随机中文字符
      *
      * @return 随机简体中文字符
      */
     public static String nextSimplifiedChineseCharacter() {
-        String str = null;
-        int hightPos, lowPos;
-
-        hightPos = (176 + Math.abs(nextInt(39)));
-        lowPos = (161 + Math.abs(nextInt(93)));
-
-        byte[] b = new byte[2];
-        b[0] = (Integer.valueOf(hightPos)).byteValue();
-        b[1] = (Integer.valueOf(lowPos)).byteValue();
-
-        try {
-            str = new String(b, "GBK");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return str;
+        return String.valueOf(GB2312_LEVEL1[source().nextInt(GB2312_LEVEL1.length)]);
     }
 
     /**
@@ -141,28 +452,80 @@ public class RandomUtils {
      * @return 随机简体中文字符串
      */
     public static String nextSimplifiedChineseString(int length) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            result.append(nextSimplifiedChineseCharacter());
-        }
-        return result.toString();
+        long begin = Instrumentation.begin();
+        char[] result = new char[length];
+        nextSimplifiedChineseChars(result, 0, length);
+        String text = new String(result);
+        Instrumentation.end(Operation.RANDOM_STRING, begin, length);
+        return text;
+    }
+
+    /**
+     * 功能：用随机的常用汉字填充字符数组
+     * 场景：批量生成测试数据时复用缓冲区
+     *
+     * @param dest   目标数组
+     * @param offset 写入的起始位置
+     * @param length 字符个数
+     */
+    public static void nextSimplifiedChineseChars(char[] dest, int offset, int length) {
+        source().nextChars(dest, offset, length, GB2312_LEVEL1);
     }
 
     /**
      * 功能：创建一个中文姓名
+     * 说明：姓氏按人口占比抽取，王、李、张约各占7%
      *
      * @return 人名
      */
     public static String generateChinesePersonName() {
-        int index = nextInt(SURNAME_ALL.length - 1);
-        String name = SURNAME_ALL[index];
+        long begin = Instrumentation.begin();
+        StringBuilder name = new StringBuilder(4);
+        appendChinesePersonName(source(), name);
+        Instrumentation.end(Operation.RANDOM_NAME, begin, name.length());
+        return name.toString();
+    }
+
+    /**
+     * 功能：按人口占比获取一个随机姓氏
+     *
+     * @return 姓氏
+     */
+    public static String nextSurname() {
+        return SURNAMES[SURNAME_TABLE.next(source())];
+    }
 
-        int size = nextInt(1, 2);
+    /**
+     * 功能：用指定的生成器创建一个中文姓名，追加到StringBuilder
+     * 场景：RecordGenerator按分区种子生成可重现的姓名
+     *
+     * @param source 生成器
+     * @param dest   目标StringBuilder
+     */
+    static void appendChinesePersonName(RandomSource source, StringBuilder dest) {
+        dest.append(SURNAMES[SURNAME_TABLE.next(source)]);
+        //名为1-2个字
+        int size = source.nextInt(1, 2);
         for (int i = 0; i < size; i++) {
-            name += nextSimplifiedChineseCharacter();
+            dest.append(GB2312_LEVEL1[source.nextInt(GB2312_LEVEL1.length)]);
         }
+    }
 
-        return name;
+    /**
+     * 功能：解码GB2312一级汉字区
+     * 说明：区码B0-D7，位码A1-FE，D7区最后5个位置(D7FA-D7FE)没有汉字
+     */
+    private static char[] decodeGb2312Level1() {
+        byte[] codes = new byte[(0xD7 - 0xB0 + 1) * 94 * 2];
+        int length = 0;
+        for (int high = 0xB0; high <= 0xD7; high++) {
+            int lastLow = high == 0xD7 ? 0xF9 : 0xFE;
+            for (int low = 0xA1; low <= lastLow; low++) {
+                codes[length++] = (byte) high;
+                codes[length++] = (byte) low;
+            }
+        }
+        return new String(codes, 0, length, Charset.forName("GBK")).toCharArray();
     }
 
     /**
@@ -172,7 +535,26 @@ public class RandomUtils {
      * @return 不带横线的UUID
      */
     public static String uuid() {
-        return UUID.randomUUID().toString().replace("-", "");
+        long begin = Instrumentation.begin();
+        //随机版本4: 122位安全随机数，版本与变体位按RFC 4122设置
+        long mostSignificantBits = (SecureRandomUtils.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSignificantBits = (SecureRandomUtils.nextLong() >>> 2) | 0x8000000000000000L;
+        String uuid = IdUtils.toHex(mostSignificantBits, leastSignificantBits);
+        Instrumentation.end(Operation.RANDOM_UUID, begin, 0);
+        return uuid;
+    }
+
+    /**
+     * 功能：获取按时间有序、不带横线的UUID(版本7)
+     * 场景：数据库主键，详见IdUtils
+     *
+     * @return 不带横线的UUIDv7
+     */
+    public static String orderedUuid() {
+        long begin = Instrumentation.begin();
+        String uuid = IdUtils.uuidV7();
+        Instrumentation.end(Operation.RANDOM_UUID, begin, 0);
+        return uuid;
     }
 
     /**
@@ -212,4 +594,54 @@ public class RandomUtils {
             "丌官", "司寇", "仉", "督", "子车", "颛孙", "端木", "巫马", "公西", "漆雕", "乐正", "壤驷", "公良",
             "拓拔", "夹谷", "宰父", "谷梁", "段干", "百里", "东郭", "南门", "呼延", "归", "海", "羊舌", "微生",
             "梁丘", "左丘", "东门", "西门", "南宫"};
+
+    /**
+     * 常见姓氏，按人口占比从高到低排列
+     */
+    private static final String[] COMMON_SURNAMES = {
+            "王", "李", "张", "刘", "陈", "杨", "赵", "黄", "周", "吴", "徐", "孙", "胡", "朱", "高", "林",
+            "何", "郭", "马", "罗", "梁", "宋", "郑", "谢", "韩", "唐", "冯", "于", "董", "萧", "程", "曹",
+            "袁", "邓", "许", "傅", "沈", "曾", "彭", "吕", "苏", "卢", "蒋", "蔡", "贾", "丁", "魏", "薛",
+            "叶", "阎", "余", "潘", "杜", "戴", "夏", "钟", "汪", "田", "任", "姜", "范", "方", "石", "姚",
+            "谭", "廖", "邹", "熊", "金", "陆", "郝", "孔", "白", "崔", "康", "毛", "邱", "秦", "江", "史",
+            "顾", "侯", "邵", "孟", "龙", "万", "段", "雷", "钱", "汤", "尹", "黎", "易", "常", "武", "乔",
+            "贺", "赖", "龚", "文"};
+
+    /**
+     * 常见姓氏的人口占比(%)，取自公安部户籍统计的近似值，合计约82%
+     */
+    private static final double[] COMMON_SURNAME_WEIGHTS = {
+            7.12, 7.08, 6.67, 5.40, 4.54, 3.08, 2.29, 2.26, 2.04, 1.85,
+            1.51, 1.36, 1.32, 1.20, 1.16, 1.13, 1.11, 1.08, 1.03, 0.84,
+            0.81, 0.66, 0.63, 0.61, 0.59, 0.58, 0.57, 0.56, 0.55, 0.53,
+            0.53, 0.52, 0.52, 0.50, 0.49, 0.48, 0.46, 0.45, 0.44, 0.44,
+            0.43, 0.42, 0.42, 0.41, 0.40, 0.40, 0.39, 0.38, 0.38, 0.37,
+            0.36, 0.36, 0.35, 0.35, 0.34, 0.34, 0.34, 0.33, 0.33, 0.32,
+            0.32, 0.31, 0.31, 0.30, 0.29, 0.29, 0.28, 0.27, 0.27, 0.27,
+            0.26, 0.26, 0.26, 0.25, 0.25, 0.25, 0.25, 0.24, 0.24, 0.24,
+            0.24, 0.23, 0.23, 0.23, 0.23, 0.22, 0.22, 0.22, 0.21, 0.21,
+            0.21, 0.21, 0.20, 0.20, 0.20, 0.19, 0.19, 0.19, 0.19, 0.18};
+
+    /**
+     * 抽样用的姓氏表: 常见姓氏在前，百家姓中的其余姓氏平分剩余的占比
+     */
+    private static final String[] SURNAMES;
+
+    private static final AliasTable SURNAME_TABLE;
+
+    static {
+        Set<String> surnames = new LinkedHashSet<>(Arrays.asList(COMMON_SURNAMES));
+        surnames.addAll(Arrays.asList(SURNAME_ALL));
+        SURNAMES = surnames.toArray(new String[0]);
+        double common = 0;
+        for (double weight : COMMON_SURNAME_WEIGHTS) {
+            common += weight;
+        }
+        double rare = (100 - common) / (SURNAMES.length - COMMON_SURNAMES.length);
+        double[] weights = new double[SURNAMES.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = i < COMMON_SURNAME_WEIGHTS.length ? COMMON_SURNAME_WEIGHTS[i] : rare;
+        }
+        SURNAME_TABLE = new AliasTable(weights);
+    }
 }
@@ -0,0 +1,630 @@
+package random;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import date.DateFormatUtils;
+import enums.DatePattern;
+
+/**
+ * 可重现的测试数据生成器, 输出CSV或JSON Lines。
+ * 按列声明生成方式, 行按固定大小分区并行生成; 每个分区的生成器由根种子按分区顺序确定性拆分得到,
+ * 因此相同种子、相同列定义得到逐字节相同的输出, 与并行度无关。
+ * 分区按顺序写入通道, 同时在途的分区数有上限, 生成任意行数时内存占用固定。
+ * 示例：new RecordGenerator(42).sequence("id").name("name").phone("phone").writeCsv(path, 10000000)
+ */
+public class RecordGenerator {
+
+    /**
+     * 输出格式
+     */
+    public enum Format {
+        CSV, JSON_LINES
+    }
+
+    /**
+     * 每个分区的行数，分区是并行生成、顺序写入和拆分种子的单位
+     */
+    private static final int PARTITION_ROWS = 4096;
+
+    /**
+     * 每个分区线程私有的字符缓冲区大小
+     */
+    private static final int SCRATCH_SIZE = 64;
+
+    private static final char[] DIGITS = "0123456789".toCharArray();
+
+    /**
+     * 手机号第二位，与StringUtils.isPhone一致
+     */
+    private static final char[] PHONE_SECOND_DIGITS = {'3', '5', '7', '8'};
+
+    private static final char[] EMAIL_ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    private static final String[] EMAIL_DOMAINS = {
+            "qq.com", "163.com", "126.com", "sina.com", "sohu.com", "gmail.com", "outlook.com", "foxmail.com"
+    };
+
+    /**
+     * 身份证号行政区划代码
+     */
+    private static final String[] REGION_CODES = {
+            "110101", "110105", "310101", "310115", "440106", "440305", "330106", "320102",
+            "420111", "510107", "610113", "370102", "500103", "120101", "430104", "350203"
+    };
+
+    /**
+     * 身份证号前17位的加权因子与校验码，见GB 11643-1999
+     */
+    private static final int[] ID_CARD_WEIGHTS = {7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2};
+
+    private static final char[] ID_CARD_CHECK_CODES = "10X98765432".toCharArray();
+
+    /**
+     * 身份证号出生日期范围: 1950-01-01至2005-12-31
+     */
+    private static final long ID_CARD_FIRST_DAY = LocalDate.of(1950, 1, 1).toEpochDay();
+
+    private static final long ID_CARD_LAST_DAY = LocalDate.of(2005, 12, 31).toEpochDay();
+
+    private final long seed;
+
+    private final List<Column> columns = new ArrayList<>();
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 功能：创建生成器
+     *
+     * @param seed 种子，相同种子与列定义得到相同的数据
+     */
+    public RecordGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 功能：设置并行生成的线程数，不影响输出内容
+     *
+     * @param parallelism 线程数
+     * @return 本生成器
+     */
+    public RecordGenerator parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 功能：添加行号列，从1开始
+     *
+     * @param column 列名
+     * @return 本生成器
+     */
+    public RecordGenerator sequence(String column) {
+        return addColumn(column, true, false, (source, row, dest, scratch) -> dest.append(row + 1));
+    }
+
+    /**
+     * 功能：添加32位十六进制的UUID列(版本4)
+     *
+     * @param column 列名
+     * @return 本生成器
+     */
+    public RecordGenerator uuid(String column) {
+        return addColumn(column, false, false, (source, row, dest, scratch) -> {
+            long mostSignificantBits = (source.nextLong() & ~0xF000L) | 0x4000L;
+            long leastSignificantBits = (source.nextLong() >>> 2) | 0x8000000000000000L;
+            IdUtils.toHex(mostSignificantBits, leastSignificantBits, scratch, 0);
+            dest.append(scratch, 0, 32);
+        });
+    }
+
+    /**
+     * 功能：添加中文姓名列
+     *
+     * @param column 列名
+     * @return 本生成器
+     */
+    public RecordGenerator name(String column) {
+        return addColumn(column, false, false,
+                (source, row, dest, scratch) -> RandomUtils.appendChinesePersonName(source, dest));
+    }
+
+    /**
+     * 功能：添加11位手机号列，满足StringUtils.isPhone
+     *
+     * @param column 列名
+     * @return 本生成器
+     */
+    public RecordGenerator phone(String column) {
+        return addColumn(column, false, false, (source, row, dest, scratch) -> {
+            scratch[0] = '1';
+            scratch[1] = PHONE_SECOND_DIGITS[source.nextInt(PHONE_SECOND_DIGITS.length)];
+            source.nextChars(scratch, 2, 9, DIGITS);
+            dest.append(scratch, 0, 11);
+        });
+    }
+
+    /**
+     * 功能：添加邮箱列，满足StringUtils.isEmail
+     *
+     * @param column 列名
+     * @return 本生成器
+     */
+    public RecordGenerator email(String column) {
+        return addColumn(column, false, false, (source, row, dest, scratch) -> {
+            //用户名6-12位小写字母与数字
+            int length = source.nextInt(6, 12);
+            source.nextChars(scratch, 0, length, EMAIL_ALPHABET);
+            dest.append(scratch, 0, length).append('@')
+                    .append(EMAIL_DOMAINS[source.nextInt(EMAIL_DOMAINS.length)]);
+        });
+    }
+
+    /**
+     * 功能：添加18位身份证号列，出生日期在1950-2005年之间，校验码正确
+     *
+     * @param column 列名
+     * @return 本生成器
+     */
+    public RecordGenerator idCard(String column) {
+        return addColumn(column, false, false, (source, row, dest, scratch) -> {
+            REGION_CODES[source.nextInt(REGION_CODES.length)].getChars(0, 6, scratch, 0);
+            LocalDate birthday = LocalDate.ofEpochDay(source.nextLong(ID_CARD_FIRST_DAY, ID_CARD_LAST_DAY));
+            putDigits(scratch, 6, birthday.getYear(), 4);
+            putDigits(scratch, 10, birthday.getMonthValue(), 2);
+            putDigits(scratch, 12, birthday.getDayOfMonth(), 2);
+            //顺序码
+            source.nextChars(scratch, 14, 3, DIGITS);
+            int sum = 0;
+            for (int i = 0; i < 17; i++) {
+                sum += (scratch[i] - '0') * ID_CARD_WEIGHTS[i];
+            }
+            scratch[17] = ID_CARD_CHECK_CODES[sum % 11];
+            dest.append(scratch, 0, 18);
+        });
+    }
+
+    /**
+     * 功能：添加日期列，在指定时间范围内均匀分布
+     * 说明：无偏移的格式按DateUtils当前时钟的时区输出
+     *
+     * @param column      列名
+     * @param startMillis 开始时间(包含)，毫秒时间戳
+     * @param endMillis   结束时间(包含)，毫秒时间戳
+     * @param pattern     格式
+     * @return 本生成器
+     */
+    public RecordGenerator date(String column, long startMillis, long endMillis, DatePattern pattern) {
+        if (startMillis > endMillis) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间: " + startMillis + " > " + endMillis);
+        }
+        return addColumn(column, false, false, (source, row, dest, scratch) -> {
+            int length = DateFormatUtils.format(source.nextLong(startMillis, endMillis), pattern, scratch, 0);
+            dest.append(scratch, 0, length);
+        });
+    }
+
+    /**
+     * 功能：添加整数列，在[min, max]内均匀分布
+     *
+     * @param column 列名
+     * @param min    最小值(包含)
+     * @param max    最大值(包含)
+     * @return 本生成器
+     */
+    public RecordGenerator intRange(String column, int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("最小值不能大于最大值: " + min + " > " + max);
+        }
+        return addColumn(column, true, false, (source, row, dest, scratch) -> dest.append(source.nextInt(min, max)));
+    }
+
+    /**
+     * 功能：添加定点小数列，在[min, max]内按最小单位均匀分布
+     * 示例：decimalRange("balance", 0, 10000, 2) → 0.00-10000.00
+     *
+     * @param column 列名
+     * @param min    最小值(包含)
+     * @param max    最大值(包含)
+     * @param scale  小数位数，0-9
+     * @return 本生成器
+     */
+    public RecordGenerator decimalRange(String column, double min, double max, int scale) {
+        if (scale < 0 || scale > 9) {
+            throw new IllegalArgumentException("小数位数必须为0-9: " + scale);
+        }
+        long factor = 1;
+        for (int i = 0; i < scale; i++) {
+            factor *= 10;
+        }
+        //按最小单位取整后生成，输出不受浮点误差影响
+        long minUnits = Math.round(min * factor);
+        long maxUnits = Math.round(max * factor);
+        if (minUnits > maxUnits || Math.abs(min) * factor >= Long.MAX_VALUE / 2 || Math.abs(max) * factor >= Long.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("取值范围不正确: [" + min + ", " + max + "]");
+        }
+        long unit = factor;
+        return addColumn(column, true, false, (source, row, dest, scratch) -> {
+            long units = source.nextLong(minUnits, maxUnits);
+            if (units < 0) {
+                dest.append('-');
+                units = -units;
+            }
+            dest.append(units / unit);
+            if (scale > 0) {
+                putDigits(scratch, 0, units % unit, scale);
+                dest.append('.').append(scratch, 0, scale);
+            }
+        });
+    }
+
+    /**
+     * 功能：添加定长随机字符串列
+     *
+     * @param column   列名
+     * @param length   长度
+     * @param alphabet 字母表，长度为2-65536
+     * @return 本生成器
+     */
+    public RecordGenerator string(String column, int length, char[] alphabet) {
+        if (length < 0) {
+            throw new IllegalArgumentException("长度不能为负数: " + length);
+        }
+        char[] symbols = alphabet.clone();
+        return addColumn(column, false, true, (source, row, dest, scratch) -> {
+            char[] buffer = length <= SCRATCH_SIZE ? scratch : new char[length];
+            source.nextChars(buffer, 0, length, symbols);
+            dest.append(buffer, 0, length);
+        });
+    }
+
+    /**
+     * 功能：添加枚举列，从给定的取值中均匀选取
+     * 示例：oneOf("gender", "男", "女")
+     *
+     * @param column 列名
+     * @param values 取值
+     * @return 本生成器
+     */
+    public RecordGenerator oneOf(String column, String... values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("取值不能为空: " + column);
+        }
+        String[] choices = values.clone();
+        return addColumn(column, false, true,
+                (source, row, dest, scratch) -> dest.append(choices[source.nextInt(choices.length)]));
+    }
+
+    /**
+     * 功能：添加按权重抽取的枚举列
+     * 示例：weighted("level", new String[]{"普通", "白银", "黄金"}, new double[]{80, 15, 5})
+     *
+     * @param column  列名
+     * @param values  取值
+     * @param weights 权重，与取值一一对应
+     * @return 本生成器
+     */
+    public RecordGenerator weighted(String column, String[] values, double[] weights) {
+        if (values.length != weights.length) {
+            throw new IllegalArgumentException("取值与权重的个数不一致: " + values.length + " != " + weights.length);
+        }
+        String[] choices = values.clone();
+        AliasTable table = new AliasTable(weights);
+        return addColumn(column, false, true,
+                (source, row, dest, scratch) -> dest.append(choices[table.next(source)]));
+    }
+
+    /**
+     * 功能：添加服从Zipf分布的键列，取值1-size，1最热
+     * 场景：生成缓存、索引压测用的热点访问键
+     *
+     * @param column   列名
+     * @param size     键的个数
+     * @param exponent 指数，常用值约为1
+     * @return 本生成器
+     */
+    public RecordGenerator zipf(String column, int size, double exponent) {
+        AliasTable table = AliasTable.zipf(size, exponent);
+        return addColumn(column, true, false, (source, row, dest, scratch) -> dest.append(table.next(source) + 1));
+    }
+
+    /**
+     * 功能：生成指定行数，写入CSV文件，首行为列名
+     *
+     * @param path 文件路径，已存在时覆盖
+     * @param rows 行数
+     * @return 写入的字节数
+     * @throws IOException 写入失败
+     */
+    public long writeCsv(Path path, long rows) throws IOException {
+        return write(path, rows, Format.CSV);
+    }
+
+    /**
+     * 功能：生成指定行数，写入JSON Lines文件，每行一个JSON对象
+     *
+     * @param path 文件路径，已存在时覆盖
+     * @param rows 行数
+     * @return 写入的字节数
+     * @throws IOException 写入失败
+     */
+    public long writeJsonLines(Path path, long rows) throws IOException {
+        return write(path, rows, Format.JSON_LINES);
+    }
+
+    /**
+     * 功能：生成指定行数，按指定格式写入文件
+     *
+     * @param path   文件路径，已存在时覆盖
+     * @param rows   行数
+     * @param format 输出格式
+     * @return 写入的字节数
+     * @throws IOException 写入失败
+     */
+    public long write(Path path, long rows, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return write(channel, rows, format);
+        }
+    }
+
+    /**
+     * 功能：生成指定行数，按指定格式写入通道，UTF-8编码
+     * 说明：分区在线程池中并行生成，按顺序写入，同时在途的分区数不超过线程数的2倍；通道由调用方关闭
+     *
+     * @param channel 目标通道
+     * @param rows    行数
+     * @param format  输出格式
+     * @return 写入的字节数
+     * @throws IOException 写入失败
+     */
+    public long write(WritableByteChannel channel, long rows, Format format) throws IOException {
+        if (rows < 0) {
+            throw new IllegalArgumentException("行数不能为负数: " + rows);
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("至少需要定义一列");
+        }
+        Column[] snapshot = columns.toArray(new Column[0]);
+        RandomSource root = RandomSource.of(seed);
+        long written = 0;
+        if (format == Format.CSV) {
+            written += writeFully(channel, encode(header(snapshot)));
+        }
+
+        int maxInFlight = parallelism * 2;
+        ArrayDeque<Future<ByteBuffer>> window = new ArrayDeque<>(maxInFlight);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            long nextRow = 0;
+            while (nextRow < rows || !window.isEmpty()) {
+                while (nextRow < rows && window.size() < maxInFlight) {
+                    //按分区顺序拆分生成器，保证输出与并行度无关
+                    RandomSource source = root.split();
+                    long firstRow = nextRow;
+                    int rowCount = (int) Math.min(PARTITION_ROWS, rows - nextRow);
+                    window.add(executor.submit(() -> render(snapshot, source, firstRow, rowCount, format)));
+                    nextRow += rowCount;
+                }
+                written += writeFully(channel, window.poll().get());
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("生成数据时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("生成数据失败", cause);
+        } finally {
+            for (Future<ByteBuffer> future : window) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private RecordGenerator addColumn(String name, boolean numeric, boolean escape, ValueGenerator generator) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("列名不能为空");
+        }
+        for (Column column : columns) {
+            if (column.name.equals(name)) {
+                throw new IllegalArgumentException("列名重复: " + name);
+            }
+        }
+        StringBuilder jsonKey = new StringBuilder(name.length() + 3).append('"').append(name);
+        escapeJson(jsonKey, 1);
+        jsonKey.append("\":");
+        columns.add(new Column(name, jsonKey.toString(), numeric, escape, generator));
+        return this;
+    }
+
+    /**
+     * 生成一个分区并编码为UTF-8
+     */
+    private static ByteBuffer render(Column[] columns, RandomSource source, long firstRow, int rowCount, Format format) {
+        StringBuilder out = new StringBuilder(rowCount * columns.length * 16);
+        char[] scratch = new char[SCRATCH_SIZE];
+        long endRow = firstRow + rowCount;
+        for (long row = firstRow; row < endRow; row++) {
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                if (format == Format.CSV) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    int start = out.length();
+                    column.generator.append(source, row, out, scratch);
+                    if (column.escape) {
+                        escapeCsv(out, start);
+                    }
+                } else {
+                    out.append(i == 0 ? '{' : ',').append(column.jsonKey);
+                    if (column.numeric) {
+                        column.generator.append(source, row, out, scratch);
+                    } else {
+                        out.append('"');
+                        int start = out.length();
+                        column.generator.append(source, row, out, scratch);
+                        if (column.escape) {
+                            escapeJson(out, start);
+                        }
+                        out.append('"');
+                    }
+                }
+            }
+            if (format == Format.JSON_LINES) {
+                out.append('}');
+            }
+            out.append('\n');
+        }
+        return encode(out);
+    }
+
+    private static StringBuilder header(Column[] columns) {
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                header.append(',');
+            }
+            int start = header.length();
+            header.append(columns[i].name);
+            escapeCsv(header, start);
+        }
+        return header.append('\n');
+    }
+
+    /**
+     * 从start开始的值含逗号、引号或换行时，按RFC 4180加引号并转义
+     */
+    private static void escapeCsv(StringBuilder out, int start) {
+        int length = out.length();
+        int i = start;
+        while (i < length) {
+            char c = out.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                break;
+            }
+            i++;
+        }
+        if (i == length) {
+            return;
+        }
+        String value = out.substring(start);
+        out.setLength(start);
+        out.append('"');
+        for (int j = 0; j < value.length(); j++) {
+            char c = value.charAt(j);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * 转义从start开始的JSON字符串内容中的引号、反斜杠与控制字符
+     */
+    private static void escapeJson(StringBuilder out, int start) {
+        int length = out.length();
+        int i = start;
+        while (i < length) {
+            char c = out.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                break;
+            }
+            i++;
+        }
+        if (i == length) {
+            return;
+        }
+        String value = out.substring(i);
+        out.setLength(i);
+        for (int j = 0; j < value.length(); j++) {
+            char c = value.charAt(j);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else if (c == '\t') {
+                out.append("\\t");
+            } else if (c < 0x20) {
+                out.append("\\u00").append(DIGITS[c >> 4]).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    /**
+     * 把非负整数按固定位数写入字符数组，不足位数时补0
+     */
+    private static void putDigits(char[] dest, int offset, long value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            dest[i] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        }
+    }
+
+    private static ByteBuffer encode(CharSequence text) {
+        return StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+    }
+
+    private static long writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        long length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    /**
+     * 按行生成一个值，追加到StringBuilder；scratch为分区线程私有的缓冲区
+     */
+    private interface ValueGenerator {
+        void append(RandomSource source, long row, StringBuilder dest, char[] scratch);
+    }
+
+    private static final class Column {
+        private final String name;
+        private final String jsonKey;
+        private final boolean numeric;
+        private final boolean escape;
+        private final ValueGenerator generator;
+
+        private Column(String name, String jsonKey, boolean numeric, boolean escape, ValueGenerator generator) {
+            this.name = name;
+            this.jsonKey = jsonKey;
+            this.numeric = numeric;
+            this.escape = escape;
+            this.generator = generator;
+        }
+    }
+}
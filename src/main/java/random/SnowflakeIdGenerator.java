@@ -0,0 +1,272 @@
+package random;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法64位ID生成器。
+ * ID由高到低依次为: 符号位(0) + 相对纪元的毫秒时间戳 + 机房ID + 机器ID + 毫秒内序列号, 按时间大致有序。
+ * “时间戳 + 序列号”打包在一个AtomicLong中, 通过CAS推进, 无锁;
+ * 序列号用尽或时钟回拨时等待时钟走到下一毫秒, 回拨超过容忍值时抛出IllegalStateException。
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * 默认纪元: 2020-01-01 00:00:00 UTC
+     */
+    public static final long DEFAULT_EPOCH = 1577836800000L;
+
+    /**
+     * 默认容忍的时钟回拨毫秒数
+     */
+    public static final long DEFAULT_MAX_ROLLBACK_MILLIS = 1000L;
+
+    /**
+     * 时间戳至少保留的位数，41位约可使用69年
+     */
+    private static final int MIN_TIMESTAMP_BITS = 41;
+
+    private final long epoch;
+    private final int nodeBits;
+    private final int workerBits;
+    private final int sequenceBits;
+    private final long nodeId;
+    private final long workerId;
+    private final long maxRollbackMillis;
+
+    /**
+     * 时间戳在ID中的左移位数
+     */
+    private final int timestampShift;
+
+    private final long sequenceMask;
+
+    /**
+     * 机房ID与机器ID在ID中的固定部分
+     */
+    private final long nodeAndWorker;
+
+    /**
+     * 状态: 相对纪元的毫秒时间戳 << sequenceBits | 最后发出的序列号
+     */
+    private final AtomicLong state;
+
+    /**
+     * 功能：使用默认配置创建生成器，纪元2020-01-01，机房ID与机器ID各5位，序列号12位
+     *
+     * @param nodeId   机房ID，0-31
+     * @param workerId 机器ID，0-31
+     */
+    public SnowflakeIdGenerator(long nodeId, long workerId) {
+        this(DEFAULT_EPOCH, 5, 5, 12, nodeId, workerId, DEFAULT_MAX_ROLLBACK_MILLIS);
+    }
+
+    /**
+     * 功能：创建生成器
+     * 说明：nodeBits + workerBits + sequenceBits不能超过22，保证时间戳至少41位
+     *
+     * @param epoch             纪元，毫秒时间戳，不能晚于当前时间
+     * @param nodeBits          机房ID位数
+     * @param workerBits        机器ID位数
+     * @param sequenceBits      序列号位数，至少1位
+     * @param nodeId            机房ID
+     * @param workerId          机器ID
+     * @param maxRollbackMillis 容忍的时钟回拨毫秒数，回拨在此范围内时等待时钟追上
+     */
+    public SnowflakeIdGenerator(long epoch, int nodeBits, int workerBits, int sequenceBits,
+                                long nodeId, long workerId, long maxRollbackMillis) {
+        if (nodeBits < 0 || workerBits < 0 || sequenceBits < 1
+                || nodeBits + workerBits + sequenceBits > 63 - MIN_TIMESTAMP_BITS) {
+            throw new IllegalArgumentException("位数配置不正确: nodeBits=" + nodeBits
+                    + ", workerBits=" + workerBits + ", sequenceBits=" + sequenceBits);
+        }
+        if (nodeId < 0 || nodeId >= 1L << nodeBits) {
+            throw new IllegalArgumentException("机房ID超出范围: " + nodeId);
+        }
+        if (workerId < 0 || workerId >= 1L << workerBits) {
+            throw new IllegalArgumentException("机器ID超出范围: " + workerId);
+        }
+        if (epoch < 0 || epoch > System.currentTimeMillis()) {
+            throw new IllegalArgumentException("纪元不能晚于当前时间: " + epoch);
+        }
+        if (maxRollbackMillis < 0) {
+            throw new IllegalArgumentException("时钟回拨容忍值不能为负数: " + maxRollbackMillis);
+        }
+        this.epoch = epoch;
+        this.nodeBits = nodeBits;
+        this.workerBits = workerBits;
+        this.sequenceBits = sequenceBits;
+        this.nodeId = nodeId;
+        this.workerId = workerId;
+        this.maxRollbackMillis = maxRollbackMillis;
+        this.timestampShift = nodeBits + workerBits + sequenceBits;
+        this.sequenceMask = (1L << sequenceBits) - 1;
+        this.nodeAndWorker = ((nodeId << workerBits) | workerId) << sequenceBits;
+        //初始状态为上一毫秒的序列号上限，第一次生成时直接进入当前毫秒，不必等待
+        long previous = Math.max(0L, System.currentTimeMillis() - epoch - 1);
+        this.state = new AtomicLong((previous << sequenceBits) | sequenceMask);
+    }
+
+    /**
+     * 功能：生成一个ID
+     *
+     * @return ID
+     */
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long lastTimestamp = current >>> sequenceBits;
+            long now = currentTimestamp();
+            long next;
+            if (now > lastTimestamp) {
+                //新的一毫秒，序列号从0开始
+                next = now << sequenceBits;
+            } else if (now == lastTimestamp && (current & sequenceMask) != sequenceMask) {
+                next = current + 1;
+            } else {
+                //序列号用尽或时钟回拨，等待下一毫秒
+                waitUntil(lastTimestamp + 1);
+                continue;
+            }
+            if (state.compareAndSet(current, next)) {
+                return toId(next);
+            }
+        }
+    }
+
+    /**
+     * 功能：一次预留count个ID
+     * 场景：批量插入，同一毫秒内的ID连续预留，一次CAS最多取得一毫秒剩余的全部序列号
+     *
+     * @param count ID个数
+     * @return ID数组，严格递增
+     */
+    public long[] nextIds(int count) {
+        long[] result = new long[count];
+        nextIds(result, 0, count);
+        return result;
+    }
+
+    /**
+     * 功能：一次预留count个ID，写入目标数组
+     *
+     * @param dest   目标数组
+     * @param offset 写入的起始位置
+     * @param count  ID个数
+     */
+    public void nextIds(long[] dest, int offset, int count) {
+        if (count < 0 || offset < 0 || offset + count > dest.length) {
+            throw new IllegalArgumentException("数组范围不正确: offset=" + offset + ", count=" + count);
+        }
+        int end = offset + count;
+        while (offset < end) {
+            long current = state.get();
+            long lastTimestamp = current >>> sequenceBits;
+            long now = currentTimestamp();
+            long first;
+            if (now > lastTimestamp) {
+                first = now << sequenceBits;
+            } else if (now == lastTimestamp && (current & sequenceMask) != sequenceMask) {
+                first = current + 1;
+            } else {
+                waitUntil(lastTimestamp + 1);
+                continue;
+            }
+            //本毫秒剩余的序列号与所需个数取较小值
+            long available = sequenceMask - (first & sequenceMask) + 1;
+            int reserved = (int) Math.min(available, end - offset);
+            if (state.compareAndSet(current, first + reserved - 1)) {
+                long id = toId(first);
+                for (int i = 0; i < reserved; i++) {
+                    dest[offset++] = id + i;
+                }
+            }
+        }
+    }
+
+    /**
+     * 功能：获取ID的生成时间
+     *
+     * @param id ID
+     * @return 毫秒时间戳
+     */
+    public long getTimestamp(long id) {
+        return (id >>> timestampShift) + epoch;
+    }
+
+    /**
+     * 功能：获取ID中的机房ID
+     *
+     * @param id ID
+     * @return 机房ID
+     */
+    public long getNodeId(long id) {
+        return (id >>> (workerBits + sequenceBits)) & ((1L << nodeBits) - 1);
+    }
+
+    /**
+     * 功能：获取ID中的机器ID
+     *
+     * @param id ID
+     * @return 机器ID
+     */
+    public long getWorkerId(long id) {
+        return (id >>> sequenceBits) & ((1L << workerBits) - 1);
+    }
+
+    /**
+     * 功能：获取ID中的序列号
+     *
+     * @param id ID
+     * @return 序列号
+     */
+    public long getSequence(long id) {
+        return id & sequenceMask;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    private long toId(long packed) {
+        return ((packed >>> sequenceBits) << timestampShift) | nodeAndWorker | (packed & sequenceMask);
+    }
+
+    private long currentTimestamp() {
+        return System.currentTimeMillis() - epoch;
+    }
+
+    /**
+     * 功能：等待时钟走到指定的相对毫秒
+     * 相差不超过1毫秒时让出CPU自旋，否则睡眠；回拨超过容忍值时直接失败
+     */
+    private void waitUntil(long timestamp) {
+        long now = currentTimestamp();
+        //序列号用尽时timestamp只比now大1，超过1说明时钟发生了回拨
+        if (timestamp - now - 1 > maxRollbackMillis) {
+            throw new IllegalStateException("时钟回拨" + (timestamp - now - 1) + "毫秒，超过容忍值" + maxRollbackMillis);
+        }
+        while (now < timestamp) {
+            long remaining = timestamp - now;
+            if (remaining > 1) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(remaining - 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待时钟时被中断", e);
+                }
+            } else {
+                Thread.yield();
+            }
+            now = currentTimestamp();
+        }
+    }
+}
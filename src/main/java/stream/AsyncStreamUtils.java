@@ -0,0 +1,447 @@
+package stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 基于AsynchronousFileChannel的异步文件读取与复制, 结果以CompletableFuture返回, 不占用调用线程。
+ * 文件按块读写, 同时可有多个块在途, 充分利用NVMe等设备的队列深度; 复制使用池化的直接缓冲区。
+ * 取消返回的Future后不再发起新的读写, 并关闭打开的文件, 在途的操作随之结束。
+ */
+public final class AsyncStreamUtils {
+
+    /**
+     * 默认块大小: 1MB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * 默认同时在途的块数
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * 可一次读入字节数组的最大文件大小
+     */
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * 默认块大小的共享缓冲池
+     */
+    private static final BufferPool SHARED_POOL = new BufferPool(DEFAULT_CHUNK_SIZE, 64);
+
+    private AsyncStreamUtils() {
+    }
+
+    /**
+     * 功能：异步读取整个文件
+     *
+     * @param file 文件
+     * @return 文件内容
+     */
+    public static CompletableFuture<byte[]> readAllBytes(Path file) {
+        return readAllBytes(file, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * 功能：异步读取整个文件，多个块并行读取
+     *
+     * @param file        文件
+     * @param parallelism 同时在途的块数
+     * @return 文件内容
+     */
+    public static CompletableFuture<byte[]> readAllBytes(Path file, int parallelism) {
+        checkParallelism(parallelism);
+        AsynchronousFileChannel source;
+        long size;
+        try {
+            source = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        try {
+            size = source.size();
+        } catch (IOException e) {
+            StreamUtils.closings(source);
+            return failed(e);
+        }
+        if (size > MAX_ARRAY_SIZE) {
+            StreamUtils.closings(source);
+            return failed(new IOException("文件过大，无法读入字节数组: " + file + ", " + size));
+        }
+        byte[] content = new byte[(int) size];
+        ParallelTransfer transfer = new ParallelTransfer(source, null, content, size, DEFAULT_CHUNK_SIZE, null);
+        transfer.start(parallelism);
+        //读取期间文件变短时截掉末尾未填充的部分
+        return dependent(transfer.result, length -> length == size ? content : Arrays.copyOf(content, (int) (long) length));
+    }
+
+    /**
+     * 功能：异步读取文本文件，UTF-8编码
+     *
+     * @param file 文件
+     * @return 文件内容
+     */
+    public static CompletableFuture<String> readString(Path file) {
+        return readString(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 功能：异步读取文本文件
+     *
+     * @param file    文件
+     * @param charset 编码
+     * @return 文件内容
+     */
+    public static CompletableFuture<String> readString(Path file, Charset charset) {
+        return dependent(readAllBytes(file), bytes -> new String(bytes, charset));
+    }
+
+    /**
+     * 功能：异步复制文件，目标文件已存在时覆盖
+     *
+     * @param source 源文件
+     * @param target 目标文件
+     * @return 复制的字节数
+     */
+    public static CompletableFuture<Long> copy(Path source, Path target) {
+        return copy(source, target, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * 功能：异步复制文件，多个块并行读写，目标文件已存在时覆盖
+     * 场景：NVMe等支持深队列的设备上提高大文件复制吞吐
+     *
+     * @param source      源文件
+     * @param target      目标文件
+     * @param parallelism 同时在途的块数
+     * @return 复制的字节数
+     */
+    public static CompletableFuture<Long> copy(Path source, Path target, int parallelism) {
+        checkParallelism(parallelism);
+        AsynchronousFileChannel in = null;
+        AsynchronousFileChannel out = null;
+        long size;
+        try {
+            in = AsynchronousFileChannel.open(source, StandardOpenOption.READ);
+            out = AsynchronousFileChannel.open(target, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            size = in.size();
+        } catch (IOException e) {
+            StreamUtils.closings(in, out);
+            return failed(e);
+        }
+        ParallelTransfer transfer = new ParallelTransfer(in, out, null, size, DEFAULT_CHUNK_SIZE, SHARED_POOL);
+        transfer.start(parallelism);
+        return transfer.result;
+    }
+
+    /**
+     * 功能：异步把文件顺序写入异步通道，例如AsynchronousSocketChannel
+     * 说明：按块顺序读写，完成后不关闭目标通道
+     *
+     * @param source 源文件
+     * @param target 目标通道
+     * @return 写入的字节数
+     */
+    public static CompletableFuture<Long> copy(Path source, AsynchronousByteChannel target) {
+        AsynchronousFileChannel in;
+        try {
+            in = AsynchronousFileChannel.open(source, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        SequentialTransfer transfer = new SequentialTransfer(in, target, SHARED_POOL);
+        transfer.start();
+        return transfer.result;
+    }
+
+    private static void checkParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("在途块数必须大于0: " + parallelism);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 派生结果的Future, 取消派生的Future时同时取消原Future
+     */
+    private static <T, R> CompletableFuture<R> dependent(CompletableFuture<T> source, Function<T, R> function) {
+        CompletableFuture<R> result = source.thenApply(function);
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 一个块的读写状态, 作为CompletionHandler的附件在回调之间传递
+     */
+    private static final class Chunk {
+        private ByteBuffer buffer;
+
+        /**
+         * 块在文件中的起始位置
+         */
+        private long position;
+
+        /**
+         * 块在缓冲区中的起始下标, 池化缓冲区为0, 直接读入数组时为块在数组中的位置
+         */
+        private int start;
+
+        private Chunk(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private long filePosition() {
+            return position + buffer.position() - start;
+        }
+    }
+
+    /**
+     * 多块并行的传输: 每个工作者循环领取下一个块, 读满后写入目标文件的相同位置(或直接读入数组), 再领取下一块
+     */
+    private static final class ParallelTransfer {
+        private final AsynchronousFileChannel source;
+
+        /**
+         * 目标文件, 为空时直接读入array
+         */
+        private final AsynchronousFileChannel target;
+        private final byte[] array;
+        private final long size;
+        private final int chunkSize;
+        private final BufferPool pool;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private final AtomicLong nextPosition = new AtomicLong();
+        private final AtomicLong transferred = new AtomicLong();
+        private final AtomicInteger activeWorkers = new AtomicInteger();
+
+        /**
+         * 读到了文件末尾, 说明文件在传输期间变短, 不再领取后面的块
+         */
+        private volatile boolean endOfFile;
+
+        private final CompletionHandler<Integer, Chunk> readHandler = new CompletionHandler<Integer, Chunk>() {
+            @Override
+            public void completed(Integer count, Chunk chunk) {
+                if (result.isDone()) {
+                    release(chunk);
+                    return;
+                }
+                if (count < 0) {
+                    endOfFile = true;
+                } else if (chunk.buffer.hasRemaining()) {
+                    source.read(chunk.buffer, chunk.filePosition(), chunk, this);
+                    return;
+                }
+                chunkRead(chunk);
+            }
+
+            @Override
+            public void failed(Throwable e, Chunk chunk) {
+                fail(e, chunk);
+            }
+        };
+
+        private final CompletionHandler<Integer, Chunk> writeHandler = new CompletionHandler<Integer, Chunk>() {
+            @Override
+            public void completed(Integer count, Chunk chunk) {
+                if (result.isDone()) {
+                    release(chunk);
+                    return;
+                }
+                if (chunk.buffer.hasRemaining()) {
+                    target.write(chunk.buffer, chunk.filePosition(), chunk, this);
+                    return;
+                }
+                transferred.addAndGet(chunk.buffer.limit());
+                nextChunk(chunk);
+            }
+
+            @Override
+            public void failed(Throwable e, Chunk chunk) {
+                fail(e, chunk);
+            }
+        };
+
+        private ParallelTransfer(AsynchronousFileChannel source, AsynchronousFileChannel target, byte[] array,
+                                 long size, int chunkSize, BufferPool pool) {
+            this.source = source;
+            this.target = target;
+            this.array = array;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.pool = pool;
+            //无论成功、失败还是被取消都关闭文件，在途的操作会以异常结束并归还缓冲区
+            result.whenComplete((value, e) -> StreamUtils.closings(source, target));
+        }
+
+        private void start(int parallelism) {
+            long chunks = (size + chunkSize - 1) / chunkSize;
+            int workers = (int) Math.min(parallelism, chunks);
+            if (workers == 0) {
+                result.complete(0L);
+                return;
+            }
+            activeWorkers.set(workers);
+            for (int i = 0; i < workers; i++) {
+                nextChunk(new Chunk(pool == null ? null : pool.acquire()));
+            }
+        }
+
+        private void nextChunk(Chunk chunk) {
+            if (result.isDone()) {
+                release(chunk);
+                return;
+            }
+            long position = endOfFile ? size : nextPosition.getAndAdd(chunkSize);
+            if (position >= size) {
+                release(chunk);
+                if (activeWorkers.decrementAndGet() == 0) {
+                    result.complete(transferred.get());
+                }
+                return;
+            }
+            int length = (int) Math.min(chunkSize, size - position);
+            chunk.position = position;
+            if (array != null) {
+                chunk.buffer = ByteBuffer.wrap(array, (int) position, length);
+                chunk.start = (int) position;
+            } else {
+                chunk.buffer.clear();
+                chunk.buffer.limit(length);
+                chunk.start = 0;
+            }
+            source.read(chunk.buffer, position, chunk, readHandler);
+        }
+
+        private void chunkRead(Chunk chunk) {
+            if (target == null) {
+                transferred.addAndGet(chunk.buffer.position() - chunk.start);
+                nextChunk(chunk);
+                return;
+            }
+            chunk.buffer.flip();
+            if (!chunk.buffer.hasRemaining()) {
+                nextChunk(chunk);
+                return;
+            }
+            target.write(chunk.buffer, chunk.position, chunk, writeHandler);
+        }
+
+        private void fail(Throwable e, Chunk chunk) {
+            release(chunk);
+            result.completeExceptionally(e);
+        }
+
+        private void release(Chunk chunk) {
+            if (pool != null) {
+                pool.release(chunk.buffer);
+                chunk.buffer = null;
+            }
+        }
+    }
+
+    /**
+     * 顺序传输: 读一块、写一块, 直到文件末尾
+     */
+    private static final class SequentialTransfer {
+        private final AsynchronousFileChannel source;
+        private final AsynchronousByteChannel target;
+        private final BufferPool pool;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private final Chunk chunk;
+
+        private final CompletionHandler<Integer, Chunk> readHandler = new CompletionHandler<Integer, Chunk>() {
+            @Override
+            public void completed(Integer count, Chunk chunk) {
+                if (result.isDone()) {
+                    release();
+                    return;
+                }
+                if (count < 0) {
+                    release();
+                    result.complete(chunk.position);
+                    return;
+                }
+                chunk.buffer.flip();
+                target.write(chunk.buffer, chunk, writeHandler);
+            }
+
+            @Override
+            public void failed(Throwable e, Chunk chunk) {
+                fail(e);
+            }
+        };
+
+        private final CompletionHandler<Integer, Chunk> writeHandler = new CompletionHandler<Integer, Chunk>() {
+            @Override
+            public void completed(Integer count, Chunk chunk) {
+                if (result.isDone()) {
+                    release();
+                    return;
+                }
+                chunk.position += count;
+                if (chunk.buffer.hasRemaining()) {
+                    target.write(chunk.buffer, chunk, this);
+                    return;
+                }
+                read();
+            }
+
+            @Override
+            public void failed(Throwable e, Chunk chunk) {
+                fail(e);
+            }
+        };
+
+        private SequentialTransfer(AsynchronousFileChannel source, AsynchronousByteChannel target, BufferPool pool) {
+            this.source = source;
+            this.target = target;
+            this.pool = pool;
+            this.chunk = new Chunk(pool.acquire());
+            //目标通道由调用方管理，只关闭源文件
+            result.whenComplete((value, e) -> StreamUtils.closings(source));
+        }
+
+        private void start() {
+            read();
+        }
+
+        private void read() {
+            chunk.buffer.clear();
+            source.read(chunk.buffer, chunk.position, chunk, readHandler);
+        }
+
+        private void fail(Throwable e) {
+            release();
+            result.completeExceptionally(e);
+        }
+
+        private void release() {
+            pool.release(chunk.buffer);
+            chunk.buffer = null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package stream;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定大小直接缓冲区的无锁对象池。
+ * 直接缓冲区分配与回收代价高, I/O密集的场景借出后归还复用; 池空时新分配, 池满时归还的缓冲区直接丢弃, 内存占用有上限。
+ */
+public final class BufferPool {
+
+    private final int bufferSize;
+
+    private final int maxPooled;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * 功能：创建缓冲池
+     *
+     * @param bufferSize 每个缓冲区的字节数
+     * @param maxPooled  池中最多保留的缓冲区个数
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("缓冲区大小必须大于0: " + bufferSize);
+        }
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("缓冲区个数不能为负数: " + maxPooled);
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * 功能：借出一个已清空的缓冲区
+     *
+     * @return 缓冲区，position为0，limit为容量
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * 功能：归还缓冲区，归还后调用方不能再使用
+     *
+     * @param buffer 缓冲区，为空或大小不符时忽略
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize || !buffer.isDirect()) {
+            return;
+        }
+        buffer.clear();
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,111 @@
+package stream;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import enums.DigestAlgorithm;
+
+/**
+ * 带摘要的复制结果: 字节数与各算法的摘要
+ */
+public final class DigestResult {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long count;
+
+    private final EnumMap<DigestAlgorithm, byte[]> digests;
+
+    DigestResult(long count, EnumMap<DigestAlgorithm, byte[]> digests) {
+        this.count = count;
+        this.digests = digests;
+    }
+
+    /**
+     * 功能：获取字节数
+     *
+     * @return 字节数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 功能：获取已计算的算法
+     *
+     * @return 算法集合
+     */
+    public Set<DigestAlgorithm> getAlgorithms() {
+        return Collections.unmodifiableSet(digests.keySet());
+    }
+
+    /**
+     * 功能：获取指定算法的摘要
+     *
+     * @param algorithm 算法
+     * @return 摘要的副本，未计算该算法时为null
+     */
+    public byte[] getDigest(DigestAlgorithm algorithm) {
+        byte[] digest = digests.get(algorithm);
+        return digest == null ? null : digest.clone();
+    }
+
+    /**
+     * 功能：获取指定算法的小写十六进制摘要
+     * 示例：getHex(DigestAlgorithm.MD5) → d41d8cd98f00b204e9800998ecf8427e
+     *
+     * @param algorithm 算法
+     * @return 十六进制摘要，未计算该算法时为null
+     */
+    public String getHex(DigestAlgorithm algorithm) {
+        byte[] digest = digests.get(algorithm);
+        if (digest == null) {
+            return null;
+        }
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * 功能：获取指定算法的Base64摘要
+     * 场景：HTTP的Content-MD5、Digest等头部
+     *
+     * @param algorithm 算法
+     * @return Base64摘要，未计算该算法时为null
+     */
+    public String getBase64(DigestAlgorithm algorithm) {
+        byte[] digest = digests.get(algorithm);
+        return digest == null ? null : Base64.getEncoder().encodeToString(digest);
+    }
+
+    /**
+     * 只包含指定算法的结果, 缓存中的摘要按需取出
+     */
+    DigestResult select(DigestAlgorithm[] algorithms) {
+        EnumMap<DigestAlgorithm, byte[]> selected = new EnumMap<>(DigestAlgorithm.class);
+        for (DigestAlgorithm algorithm : algorithms) {
+            selected.put(algorithm, digests.get(algorithm));
+        }
+        return new DigestResult(count, selected);
+    }
+
+    Map<DigestAlgorithm, byte[]> digests() {
+        return digests;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("count=").append(count);
+        for (DigestAlgorithm algorithm : digests.keySet()) {
+            text.append(", ").append(algorithm).append('=').append(getHex(algorithm));
+        }
+        return text.toString();
+    }
+}
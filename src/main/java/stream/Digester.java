@@ -0,0 +1,150 @@
+package stream;
+
+import java.lang.reflect.Constructor;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import enums.DigestAlgorithm;
+
+/**
+ * 统一校验和与消息摘要的增量计算接口
+ */
+abstract class Digester {
+
+    /**
+     * java.util.zip.CRC32C的构造方法，Java 8为空
+     */
+    private static final Constructor<? extends Checksum> CRC32C_CONSTRUCTOR = findCrc32c();
+
+    abstract void update(byte[] bytes, int offset, int length);
+
+    /**
+     * 功能：结束计算，返回摘要
+     *
+     * @return 摘要，校验和按大端序输出4字节
+     */
+    abstract byte[] digest();
+
+    /**
+     * 功能：创建指定算法的摘要计算器
+     *
+     * @param algorithm 算法
+     * @return 摘要计算器
+     */
+    static Digester of(DigestAlgorithm algorithm) {
+        switch (algorithm) {
+            case CRC32:
+                return new ChecksumDigester(new CRC32());
+            case CRC32C:
+                return new ChecksumDigester(newCrc32c());
+            default:
+                try {
+                    return new MessageDigester(MessageDigest.getInstance(algorithm.getAlgorithm()));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("不支持的摘要算法: " + algorithm.getAlgorithm(), e);
+                }
+        }
+    }
+
+    private static Checksum newCrc32c() {
+        if (CRC32C_CONSTRUCTOR != null) {
+            try {
+                return CRC32C_CONSTRUCTOR.newInstance();
+            } catch (ReflectiveOperationException e) {
+                //退回纯Java实现
+            }
+        }
+        return new Crc32c();
+    }
+
+    private static Constructor<? extends Checksum> findCrc32c() {
+        try {
+            return Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class).getConstructor();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static final class ChecksumDigester extends Digester {
+        private final Checksum checksum;
+
+        private ChecksumDigester(Checksum checksum) {
+            this.checksum = checksum;
+        }
+
+        @Override
+        void update(byte[] bytes, int offset, int length) {
+            checksum.update(bytes, offset, length);
+        }
+
+        @Override
+        byte[] digest() {
+            int value = (int) checksum.getValue();
+            return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+    }
+
+    private static final class MessageDigester extends Digester {
+        private final MessageDigest digest;
+
+        private MessageDigester(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        void update(byte[] bytes, int offset, int length) {
+            digest.update(bytes, offset, length);
+        }
+
+        @Override
+        byte[] digest() {
+            return digest.digest();
+        }
+    }
+
+    /**
+     * Java 8没有CRC32C时使用的查表实现(Castagnoli多项式, 反射形式0x82F63B78)
+     */
+    private static final class Crc32c implements Checksum {
+        private static final int[] TABLE = new int[256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                int crc = i;
+                for (int j = 0; j < 8; j++) {
+                    crc = (crc >>> 1) ^ (0x82F63B78 & -(crc & 1));
+                }
+                TABLE[i] = crc;
+            }
+        }
+
+        private int crc = 0xFFFFFFFF;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            int value = crc;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                value = (value >>> 8) ^ TABLE[(value ^ bytes[i]) & 0xFF];
+            }
+            crc = value;
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xFFFFFFFF;
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持续跟踪增长中的日志文件(类似tail -F), 只读取新追加的字节, 完整的行分批交给回调。
+ * 以FileChannel按位置读取, 内存占用固定: 64KB读缓冲区、最长一行与一批行; 超过最大长度的行只保留前面的部分。
+ * 有新数据时由WatchService唤醒, 不支持或错过事件时按轮询间隔检查; 文件被轮转(重命名后新建)时先读完旧文件再从新文件开头读取,
+ * 被截断时从头读取。已处理到的偏移可保存为检查点文件, 重启后从检查点继续, 回调失败的那一批会重新投递(至少一次)。
+ * 示例：new FileTailer(Paths.get("app.log")).checkpoint(Paths.get("app.log.offset")).follow(lines -> ...)
+ */
+public class FileTailer {
+
+    /**
+     * 读缓冲区大小: 64KB
+     */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    private Path checkpointFile;
+
+    private long pollIntervalMillis = 100;
+
+    private int batchSize = 1000;
+
+    private int maxLineLength = 1024 * 1024;
+
+    private boolean fromEnd;
+
+    private volatile boolean stopped;
+
+    private volatile WatchService watchService;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    private FileChannel channel;
+
+    /**
+     * 打开的文件的标识, 用于识别轮转
+     */
+    private Object fileKey;
+
+    /**
+     * 已读到的位置
+     */
+    private long readPosition;
+
+    /**
+     * 已成功处理的最后一行之后的偏移, 即检查点
+     */
+    private long offset;
+
+    private byte[] line = new byte[256];
+
+    private int lineLength;
+
+    private long lineEnd;
+
+    private final List<String> batch = new ArrayList<>();
+
+    private boolean started;
+
+    /**
+     * 功能：创建跟踪器，文件可以暂时不存在
+     *
+     * @param file 日志文件
+     */
+    public FileTailer(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 功能：设置文件编码，默认UTF-8
+     * 说明：按字节'\n'切分行，只支持换行符编码为单个字节0x0A的编码，如UTF-8、GBK、ISO-8859-1，不支持UTF-16、UTF-32
+     *
+     * @param charset 编码
+     * @return 本跟踪器
+     */
+    public FileTailer charset(Charset charset) {
+        if (charset == null || !Arrays.equals("\n".getBytes(charset), new byte[]{'\n'})) {
+            throw new IllegalArgumentException("不支持的编码, 换行符必须是单个字节: " + charset);
+        }
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * 功能：设置检查点文件，每批处理成功后写入偏移，启动时从中恢复
+     *
+     * @param checkpointFile 检查点文件
+     * @return 本跟踪器
+     */
+    public FileTailer checkpoint(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        return this;
+    }
+
+    /**
+     * 功能：设置轮询间隔，也是WatchService没有事件时的最长等待时间，默认100毫秒
+     *
+     * @param millis 毫秒
+     * @return 本跟踪器
+     */
+    public FileTailer pollInterval(long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("轮询间隔必须大于0: " + millis);
+        }
+        this.pollIntervalMillis = millis;
+        return this;
+    }
+
+    /**
+     * 功能：设置每批最多的行数，默认1000
+     *
+     * @param lines 行数
+     * @return 本跟踪器
+     */
+    public FileTailer batchSize(int lines) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("每批行数必须大于0: " + lines);
+        }
+        this.batchSize = lines;
+        return this;
+    }
+
+    /**
+     * 功能：设置一行的最大字节数，超过的部分丢弃，默认1MB
+     *
+     * @param bytes 字节数
+     * @return 本跟踪器
+     */
+    public FileTailer maxLineLength(int bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("行长度必须大于0: " + bytes);
+        }
+        this.maxLineLength = bytes;
+        return this;
+    }
+
+    /**
+     * 功能：设置没有检查点时是否从文件末尾开始，只处理之后追加的行；默认从头开始
+     *
+     * @param fromEnd 是否从末尾开始
+     * @return 本跟踪器
+     */
+    public FileTailer fromEnd(boolean fromEnd) {
+        this.fromEnd = fromEnd;
+        return this;
+    }
+
+    /**
+     * 功能：持续跟踪文件，阻塞当前线程直到stop被调用或回调抛出异常
+     *
+     * @param handler 行的批处理回调
+     * @throws IOException 读取或写检查点失败，回调的受检异常也包装为IOException
+     */
+    public void follow(LineHandler handler) throws IOException {
+        stopped = false;
+        WatchService watcher = openWatchService();
+        try {
+            while (!stopped) {
+                if (poll(handler) == 0 && !stopped) {
+                    await(watcher);
+                }
+            }
+        } finally {
+            watchService = null;
+            StreamUtils.closings(watcher);
+        }
+    }
+
+    /**
+     * 功能：读取当前已追加的全部完整行，不等待
+     * 场景：由定时任务驱动，而不是占用一个线程调用follow
+     *
+     * @param handler 行的批处理回调
+     * @return 本次处理的行数
+     * @throws IOException 读取或写检查点失败，回调的受检异常也包装为IOException
+     */
+    public int poll(LineHandler handler) throws IOException {
+        if (!started) {
+            start();
+        }
+        BasicFileAttributes attributes = readAttributes();
+        if (channel == null) {
+            if (attributes == null) {
+                return 0;
+            }
+            open(attributes, 0);
+        }
+        if (channel != null && channel.size() < readPosition) {
+            //文件被截断，丢弃未完成的行后从头读取；在读取之前按打开的文件的当前大小判断，读取期间追加的数据不会被误判为截断
+            lineLength = 0;
+            readPosition = 0;
+            commit(0);
+        }
+        int lines = channel != null ? readAvailable(handler) : 0;
+        if (attributes == null || !sameFile(attributes)) {
+            //旧文件已读完，切换到轮转后新建的文件；旧文件末尾没有换行的最后一行也交给回调
+            if (lineLength > 0) {
+                lineEnd = readPosition;
+                lines += addLine(handler);
+            }
+            lines += deliver(handler);
+            closeChannel();
+            if (attributes != null) {
+                open(attributes, 0);
+                //新文件在读取属性之后又被删除时等下次轮询
+                if (channel != null) {
+                    lines += readAvailable(handler);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 功能：停止follow，可以在其它线程或回调中调用
+     */
+    public void stop() {
+        stopped = true;
+        WatchService watcher = watchService;
+        if (watcher != null) {
+            StreamUtils.closings(watcher);
+        }
+    }
+
+    /**
+     * 功能：关闭打开的文件，之后可以重新调用poll或follow
+     */
+    public void close() {
+        closeChannel();
+        started = false;
+    }
+
+    /**
+     * 功能：获取已处理的偏移，即最后一行处理成功后的位置
+     *
+     * @return 字节偏移
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * 启动时按检查点或fromEnd确定起始位置
+     */
+    private void start() throws IOException {
+        started = true;
+        batch.clear();
+        lineLength = 0;
+        BasicFileAttributes attributes = readAttributes();
+        if (attributes == null) {
+            return;
+        }
+        long position = fromEnd ? attributes.size() : 0;
+        if (checkpointFile != null && Files.exists(checkpointFile)) {
+            String[] fields = new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8).trim().split("\t", 2);
+            try {
+                long saved = Long.parseLong(fields[0]);
+                //检查点之后文件被轮转或截断时从头读取
+                boolean same = fields.length < 2 || fields[1].equals(keyOf(attributes).toString());
+                position = same && saved <= attributes.size() ? saved : 0;
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("检查点文件格式不正确: " + checkpointFile, e);
+            }
+        }
+        open(attributes, position);
+    }
+
+    private void closeChannel() {
+        StreamUtils.closings(channel);
+        channel = null;
+        fileKey = null;
+    }
+
+    private void open(BasicFileAttributes attributes, long position) throws IOException {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        fileKey = keyOf(attributes);
+        readPosition = position;
+        offset = position;
+        lineLength = 0;
+    }
+
+    /**
+     * 从已读位置读到当前文件末尾, 按换行切分
+     */
+    private int readAvailable(LineHandler handler) throws IOException {
+        int lines = 0;
+        while (true) {
+            readBuffer.clear();
+            int n = channel.read(readBuffer, readPosition);
+            if (n <= 0) {
+                break;
+            }
+            byte[] bytes = readBuffer.array();
+            long base = readPosition;
+            readPosition += n;
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                if (bytes[i] == '\n') {
+                    append(bytes, start, i - start);
+                    lineEnd = base + i + 1;
+                    lines += addLine(handler);
+                    start = i + 1;
+                }
+            }
+            append(bytes, start, n - start);
+        }
+        return lines + deliver(handler);
+    }
+
+    private void append(byte[] bytes, int start, int length) {
+        int n = Math.min(length, maxLineLength - lineLength);
+        if (n <= 0) {
+            return;
+        }
+        if (lineLength + n > line.length) {
+            line = Arrays.copyOf(line, Math.min(maxLineLength, Math.max(line.length * 2, lineLength + n)));
+        }
+        System.arraycopy(bytes, start, line, lineLength, n);
+        lineLength += n;
+    }
+
+    /**
+     * 当前行加入批次, 批次满时交给回调
+     */
+    private int addLine(LineHandler handler) throws IOException {
+        int length = lineLength;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        batch.add(new String(line, 0, length, charset));
+        lineLength = 0;
+        return batch.size() >= batchSize ? deliver(handler) : 0;
+    }
+
+    private int deliver(LineHandler handler) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<String> lines = new ArrayList<>(batch);
+        batch.clear();
+        try {
+            handler.handle(lines);
+        } catch (Exception e) {
+            //回到检查点，下次从失败的这一批重新读取
+            readPosition = offset;
+            lineLength = 0;
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new IOException("处理日志行失败", e);
+        }
+        commit(lineEnd);
+        return lines.size();
+    }
+
+    /**
+     * 记录偏移并写检查点, 先写临时文件再替换
+     */
+    private void commit(long position) throws IOException {
+        offset = position;
+        if (checkpointFile == null) {
+            return;
+        }
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(temp, (position + "\t" + fileKey + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private BasicFileAttributes readAttributes() throws IOException {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private boolean sameFile(BasicFileAttributes attributes) {
+        return keyOf(attributes).equals(fileKey);
+    }
+
+    /**
+     * 文件标识: 有inode等fileKey时使用fileKey, 否则(如Windows)使用创建时间
+     */
+    private static Object keyOf(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key != null ? key : attributes.creationTime();
+    }
+
+    /**
+     * 监听文件所在目录, 不支持时返回null, 只按轮询间隔检查
+     */
+    private WatchService openWatchService() {
+        Path directory = file.getParent();
+        if (directory == null) {
+            return null;
+        }
+        WatchService watcher = null;
+        try {
+            watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchService = watcher;
+            return watcher;
+        } catch (IOException | UnsupportedOperationException e) {
+            StreamUtils.closings(watcher);
+            return null;
+        }
+    }
+
+    /**
+     * 等待目录中有文件变化, 最长一个轮询间隔
+     */
+    private void await(WatchService watcher) throws IOException {
+        try {
+            if (watcher == null) {
+                Thread.sleep(pollIntervalMillis);
+                return;
+            }
+            WatchKey key = watcher.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+            //同一目录的其它文件也会触发事件，只作为唤醒信号，是否有新数据以读取结果为准
+            while (key != null) {
+                key.pollEvents();
+                key.reset();
+                key = watcher.poll();
+            }
+        } catch (ClosedWatchServiceException e) {
+            //stop关闭了监听
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+            throw new IOException("跟踪文件时被中断", e);
+        }
+    }
+
+    /**
+     * 行的批处理回调
+     */
+    @FunctionalInterface
+    public interface LineHandler {
+
+        /**
+         * 功能：处理一批完整的行，不含换行符
+         *
+         * @param lines 按文件顺序的行
+         * @throws Exception 处理失败，这一批之后会重新投递
+         */
+        void handle(List<String> lines) throws Exception;
+    }
+}
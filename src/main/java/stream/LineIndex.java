@@ -0,0 +1,568 @@
+package stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 大文本文件的行索引, 按行号随机读取而不把所有行读入内存。
+ * 建索引时文件按32MB分段并行扫描换行符; 索引只记录每行的起始偏移, 每64行一个绝对偏移检查点, 其余为与上一行的差值(varint),
+ * 一般每行占1到2个字节。读取时以内存映射访问文件, 按需解码为字符串, 或直接返回映射区域的只读切片, 不复制数据。
+ * 索引可保存为文件旁边的“.idx”文件, 文件大小或修改时间变化后自动重建。
+ * 示例：try (LineIndex index = LineIndex.open(Paths.get("huge.csv"))) { index.getLine(123456789); }
+ */
+public final class LineIndex implements Closeable {
+
+    /**
+     * 索引文件的扩展名
+     */
+    public static final String INDEX_SUFFIX = ".idx";
+
+    /**
+     * 每个检查点之间的行数
+     */
+    private static final int BLOCK_LINES = 64;
+
+    private static final int BLOCK_SHIFT = 6;
+
+    /**
+     * 并行扫描的分段大小: 32MB
+     */
+    private static final long SCAN_CHUNK_SIZE = 32L << 20;
+
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * 内存映射的分段大小: 1GB, 跨段的行单独映射
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private static final int MAGIC = 0x4C494458;
+
+    private static final int VERSION = 1;
+
+    /**
+     * 索引文件头部的字节数: 魔数、版本、文件大小、修改时间、行数、检查点数、差值字节数
+     */
+    private static final int HEADER_SIZE = 40;
+
+    private final Path file;
+
+    private final long size;
+
+    private final long modified;
+
+    private final long lineCount;
+
+    /**
+     * 每BLOCK_LINES行第一行的起始偏移
+     */
+    private final long[] checkpoints;
+
+    /**
+     * 每块的差值在deltas中的起始位置
+     */
+    private final int[] blockOffsets;
+
+    private final byte[] deltas;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * open时保存索引文件的异常, 没有失败时为null
+     */
+    private Exception saveFailure;
+
+    private LineIndex(Path file, long size, long modified, long lineCount, long[] checkpoints, int[] blockOffsets,
+                      byte[] deltas) throws IOException {
+        this.file = file;
+        this.size = size;
+        this.modified = modified;
+        this.lineCount = lineCount;
+        this.checkpoints = checkpoints;
+        this.blockOffsets = blockOffsets;
+        this.deltas = deltas;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+    }
+
+    /**
+     * 功能：打开文件的行索引，优先使用文件旁边未过期的.idx索引，否则重新建立并保存
+     * 说明：索引文件只是缓存，目录只读等原因保存失败时仍返回建立好的索引，失败原因由getSaveFailure获取
+     *
+     * @param file 文本文件
+     * @return 行索引
+     */
+    public static LineIndex open(Path file) throws IOException {
+        Path indexFile = file.resolveSibling(file.getFileName() + INDEX_SUFFIX);
+        LineIndex index = load(file, indexFile);
+        if (index == null) {
+            index = build(file);
+            try {
+                index.save(indexFile);
+            } catch (IOException | RuntimeException e) {
+                //保存失败不影响使用，下次打开时重新建立
+                index.saveFailure = e;
+            } catch (Error e) {
+                //不返回索引时关闭文件
+                try {
+                    index.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 功能：建立行索引，线程数为CPU核数
+     *
+     * @param file 文本文件
+     * @return 行索引
+     */
+    public static LineIndex build(Path file) throws IOException {
+        return build(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 功能：并行扫描文件建立行索引
+     * 说明：只识别\n换行，行尾的\r在读取时去掉；扫描期间追加的内容不在索引内
+     *
+     * @param file        文本文件
+     * @param parallelism 扫描线程数
+     * @return 行索引
+     */
+    public static LineIndex build(Path file, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + parallelism);
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        Builder builder = new Builder(size);
+        int chunks = (int) ((size + SCAN_CHUNK_SIZE - 1) / SCAN_CHUNK_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, chunks)));
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Future<Chunk>> futures = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = i * SCAN_CHUNK_SIZE;
+                long end = Math.min(size, start + SCAN_CHUNK_SIZE);
+                futures.add(executor.submit(() -> scan(source, start, end)));
+            }
+            if (size > 0) {
+                builder.add(0);
+            }
+            //按分段顺序合并，合并完的分段即可释放
+            for (int i = 0; i < chunks; i++) {
+                futures.get(i).get().appendTo(builder);
+                futures.set(i, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("建立行索引时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("建立行索引失败", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return builder.build(file, attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * 功能：读取保存的索引
+     *
+     * @param file      文本文件
+     * @param indexFile 索引文件
+     * @return 行索引，索引不存在、格式不对、内容损坏或文件已变化时为null
+     */
+    public static LineIndex load(Path file, Path indexFile) throws IOException {
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long size = in.readLong();
+            long modified = in.readLong();
+            if (size != attributes.size() || modified != attributes.lastModifiedTime().toMillis()) {
+                return null;
+            }
+            long lineCount = in.readLong();
+            int checkpointCount = in.readInt();
+            int deltaLength = in.readInt();
+            //长度字段与索引文件大小不一致时视为损坏, 不按损坏的长度分配数组
+            if (lineCount < 0 || lineCount > size || checkpointCount != (lineCount + BLOCK_LINES - 1) >>> BLOCK_SHIFT
+                    || deltaLength < 0 || Files.size(indexFile) != HEADER_SIZE + checkpointCount * 12L + deltaLength) {
+                return null;
+            }
+            long[] checkpoints = new long[checkpointCount];
+            int[] blockOffsets = new int[checkpointCount];
+            byte[] deltas = new byte[deltaLength];
+            for (int i = 0; i < checkpoints.length; i++) {
+                checkpoints[i] = in.readLong();
+                if (checkpoints[i] < 0 || checkpoints[i] >= size) {
+                    return null;
+                }
+            }
+            for (int i = 0; i < blockOffsets.length; i++) {
+                blockOffsets[i] = in.readInt();
+                if (blockOffsets[i] < 0 || blockOffsets[i] > deltaLength) {
+                    return null;
+                }
+            }
+            in.readFully(deltas);
+            return new LineIndex(file, size, modified, lineCount, checkpoints, blockOffsets, deltas);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 功能：保存索引，先写临时文件再替换
+     *
+     * @param indexFile 索引文件
+     */
+    public void save(Path indexFile) throws IOException {
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            writeIndex(temp);
+        } catch (IOException e) {
+            //不留下写了一半的临时文件
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        try {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeIndex(Path temp) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeLong(lineCount);
+            out.writeInt(checkpoints.length);
+            out.writeInt(deltas.length);
+            for (long checkpoint : checkpoints) {
+                out.writeLong(checkpoint);
+            }
+            for (int blockOffset : blockOffsets) {
+                out.writeInt(blockOffset);
+            }
+            out.write(deltas);
+        }
+    }
+
+    /**
+     * 功能：获取open时保存索引文件的异常
+     * 说明：保存失败不影响使用，只是下次打开时需要重新建立
+     *
+     * @return 异常，已保存、从索引文件读取或不是由open返回时为null
+     */
+    public Exception getSaveFailure() {
+        return saveFailure;
+    }
+
+    /**
+     * 功能：获取行数，文件以换行结尾时不计最后的空行
+     *
+     * @return 行数
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * 功能：获取索引占用的内存
+     *
+     * @return 字节数
+     */
+    public long getIndexBytes() {
+        return checkpoints.length * 12L + deltas.length;
+    }
+
+    /**
+     * 功能：获取第n行的起始偏移
+     *
+     * @param n 行号，从0开始
+     * @return 字节偏移
+     */
+    public long getOffset(long n) {
+        checkLine(n);
+        int block = (int) (n >>> BLOCK_SHIFT);
+        long offset = checkpoints[block];
+        int position = blockOffsets[block];
+        for (int i = (int) (n & (BLOCK_LINES - 1)); i > 0; i--) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = deltas[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            offset += delta;
+        }
+        return offset;
+    }
+
+    /**
+     * 功能：读取第n行，按UTF-8解码
+     *
+     * @param n 行号，从0开始
+     * @return 行的内容，不含换行符
+     */
+    public String getLine(long n) throws IOException {
+        return getLine(n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 功能：读取第n行
+     *
+     * @param n       行号，从0开始
+     * @param charset 编码
+     * @return 行的内容，不含换行符
+     */
+    public String getLine(long n, Charset charset) throws IOException {
+        ByteBuffer buffer = getLineBuffer(n);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    /**
+     * 功能：获取第n行在内存映射中的只读切片，不复制数据
+     * 场景：按字节解析或直接写入通道，不需要解码为字符串
+     *
+     * @param n 行号，从0开始
+     * @return 行的字节，不含换行符
+     */
+    public ByteBuffer getLineBuffer(long n) throws IOException {
+        long start = getOffset(n);
+        long end = n + 1 < lineCount ? getOffset(n + 1) : size;
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalStateException("行过长: " + (end - start) + "字节");
+        }
+        int segment = (int) (start / SEGMENT_SIZE);
+        long segmentStart = segment * SEGMENT_SIZE;
+        ByteBuffer region;
+        int from;
+        if (end <= segmentStart + SEGMENT_SIZE) {
+            region = segment(segment).duplicate();
+            from = (int) (start - segmentStart);
+        } else {
+            //跨段的行单独映射
+            region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            from = 0;
+        }
+        int to = from + (int) (end - start);
+        if (to > from && region.get(to - 1) == '\n') {
+            to--;
+        }
+        if (to > from && region.get(to - 1) == '\r') {
+            to--;
+        }
+        region.limit(to).position(from);
+        return region.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * 功能：获取索引的文件
+     *
+     * @return 文件
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 功能：关闭文件，已返回的切片在映射被回收前仍可读取
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private synchronized MappedByteBuffer segment(int segment) throws IOException {
+        MappedByteBuffer mapped = segments[segment];
+        if (mapped == null) {
+            long start = segment * SEGMENT_SIZE;
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            segments[segment] = mapped;
+        }
+        return mapped;
+    }
+
+    private void checkLine(long n) {
+        if (n < 0 || n >= lineCount) {
+            throw new IndexOutOfBoundsException("行号超出范围: " + n + ", 共" + lineCount + "行");
+        }
+    }
+
+    /**
+     * 扫描一个分段, 记录其中每个换行符与上一个的距离
+     */
+    private static Chunk scan(FileChannel source, long start, long end) throws IOException {
+        Chunk chunk = new Chunk(start, end);
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long position = start;
+        long previous = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(bytes.length, end - position));
+            int n = source.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (bytes[i] == '\n') {
+                    long newline = position + i;
+                    chunk.deltas.writeVarLong(newline - previous);
+                    previous = newline;
+                    chunk.count++;
+                }
+            }
+            position += n;
+        }
+        return chunk;
+    }
+
+    /**
+     * 一个分段中换行符的位置, 第一个相对分段起点, 其余相对前一个换行符
+     */
+    private static final class Chunk {
+        private final long start;
+        private final long end;
+        private final VarLongBuffer deltas = new VarLongBuffer(1024);
+        private int count;
+
+        private Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private void appendTo(Builder builder) {
+            long newline = start;
+            int position = 0;
+            byte[] bytes = deltas.bytes;
+            for (int i = 0; i < count; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                newline += delta;
+                //换行符之后是下一行的开始，文件末尾的换行符不再开始新行
+                if (newline + 1 < builder.size) {
+                    builder.add(newline + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按顺序接收每行的起始偏移, 编码为检查点与差值
+     */
+    private static final class Builder {
+        private final long size;
+        private long[] checkpoints = new long[16];
+        private int[] blockOffsets = new int[16];
+        private final VarLongBuffer deltas = new VarLongBuffer(4096);
+        private long count;
+        private long previous;
+
+        private Builder(long size) {
+            this.size = size;
+        }
+
+        private void add(long start) {
+            if ((count & (BLOCK_LINES - 1)) == 0) {
+                int block = (int) (count >>> BLOCK_SHIFT);
+                if (block == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, block * 2);
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                }
+                checkpoints[block] = start;
+                blockOffsets[block] = deltas.length;
+            } else {
+                deltas.writeVarLong(start - previous);
+            }
+            previous = start;
+            count++;
+        }
+
+        private LineIndex build(Path file, long modified) throws IOException {
+            int blocks = (int) ((count + BLOCK_LINES - 1) >>> BLOCK_SHIFT);
+            return new LineIndex(file, size, modified, count, Arrays.copyOf(checkpoints, blocks),
+                    Arrays.copyOf(blockOffsets, blocks), Arrays.copyOf(deltas.bytes, deltas.length));
+        }
+    }
+
+    /**
+     * 可增长的varint字节序列
+     */
+    private static final class VarLongBuffer {
+        private byte[] bytes;
+        private int length;
+
+        private VarLongBuffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void writeVarLong(long value) {
+            if (length + 10 > bytes.length) {
+                if (bytes.length >= Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("行索引过大");
+                }
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, bytes.length * 2L));
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package stream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * gzip解压输入流, 按顺序解压多个首尾相接的gzip成员(如多个文件cat到一起, 或分块压缩后拼接的结果), 直到底层流结束。
+ * 与GZIPInputStream不同, 是否还有下一个成员只取决于是否读到流末尾, 不依赖available(), 网络流也不会提前结束;
+ * 每个成员都校验CRC32与长度。至少一个完整成员之后的非gzip数据(如补齐到块大小的0)视为流结束, 与GZIPInputStream一致。
+ * 使用64KB的输入缓冲区, 底层流不需要再包装BufferedInputStream。
+ */
+public class MultiMemberGzipInputStream extends InputStream {
+
+    /**
+     * 默认输入缓冲区大小: 64KB
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    private final InputStream in;
+
+    private final Inflater inflater = new Inflater(true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] buffer;
+
+    /**
+     * 输入缓冲区中有效数据的起止位置, 交给Inflater之前的数据由readByte读取
+     */
+    private int position;
+
+    private int limit;
+
+    private int members;
+
+    private boolean eof;
+
+    private boolean closed;
+
+    private final byte[] single = new byte[1];
+
+    /**
+     * 功能：创建解压流，读取第一个成员的头部
+     *
+     * @param in 输入流
+     */
+    public MultiMemberGzipInputStream(InputStream in) throws IOException {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 功能：创建解压流，读取第一个成员的头部
+     *
+     * @param in         输入流
+     * @param bufferSize 输入缓冲区大小
+     */
+    public MultiMemberGzipInputStream(InputStream in, int bufferSize) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("输入流不能为空");
+        }
+        if (bufferSize < 512) {
+            throw new IllegalArgumentException("缓冲区不能小于512字节: " + bufferSize);
+        }
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        if (!readHeader()) {
+            throw new EOFException("不是gzip数据: 输入为空");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        while (!eof) {
+            int n;
+            try {
+                n = inflater.inflate(bytes, offset, length);
+            } catch (DataFormatException e) {
+                throw new ZipException("gzip数据损坏: " + e.getMessage());
+            }
+            if (n > 0) {
+                crc.update(bytes, offset, n);
+                return n;
+            }
+            if (inflater.finished()) {
+                //成员结束：未消费的输入退回缓冲区，校验尾部后读取下一个成员
+                position = limit - inflater.getRemaining();
+                readTrailer();
+                if (!readHeader()) {
+                    eof = true;
+                }
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("gzip数据损坏: 需要预设字典");
+            } else if (inflater.needsInput()) {
+                if (fill() == -1) {
+                    throw new EOFException("gzip数据不完整");
+                }
+                inflater.setInput(buffer, position, limit - position);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return eof ? 0 : 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            inflater.end();
+            in.close();
+        }
+    }
+
+    /**
+     * 功能：获取已解压完成的成员数
+     *
+     * @return 成员数
+     */
+    public int getMembers() {
+        return members;
+    }
+
+    /**
+     * 读取成员头部, 流正好结束, 或已有完整成员之后不是gzip数据时返回false
+     */
+    private boolean readHeader() throws IOException {
+        if (position == limit && fill() == -1) {
+            return false;
+        }
+        if (!readMagic()) {
+            if (members > 0) {
+                //尾部的填充或其它数据, 忽略剩余内容
+                position = limit;
+                return false;
+            }
+            throw new ZipException("不是gzip格式");
+        }
+        if (readByte() != 8) {
+            throw new ZipException("不支持的压缩方法");
+        }
+        int flags = readByte();
+        //MTIME、XFL、OS
+        skipBytes(6);
+        if ((flags & FEXTRA) != 0) {
+            skipBytes(readByte() | (readByte() << 8));
+        }
+        if ((flags & FNAME) != 0) {
+            skipString();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipString();
+        }
+        if ((flags & FHCRC) != 0) {
+            skipBytes(2);
+        }
+        inflater.reset();
+        crc.reset();
+        inflater.setInput(buffer, position, limit - position);
+        return true;
+    }
+
+    /**
+     * 读取gzip的两个魔数字节, 第二个字节之前流结束也视为不匹配
+     */
+    private boolean readMagic() throws IOException {
+        if (readByte() != 0x1f) {
+            return false;
+        }
+        if (position == limit && fill() == -1) {
+            return false;
+        }
+        return readByte() == 0x8b;
+    }
+
+    private void readTrailer() throws IOException {
+        long expectedCrc = readIntLE() & 0xFFFFFFFFL;
+        long expectedSize = readIntLE() & 0xFFFFFFFFL;
+        if (expectedCrc != crc.getValue()) {
+            throw new ZipException("gzip数据损坏: CRC校验失败");
+        }
+        if (expectedSize != (inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+            throw new ZipException("gzip数据损坏: 长度不一致");
+        }
+        members++;
+    }
+
+    private int readIntLE() throws IOException {
+        return readByte() | (readByte() << 8) | (readByte() << 16) | (readByte() << 24);
+    }
+
+    private void skipString() throws IOException {
+        while (readByte() != 0) {
+            //跳过以0结尾的字符串
+        }
+    }
+
+    private void skipBytes(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readByte();
+        }
+    }
+
+    /**
+     * 读取头部或尾部的一个字节, 流已结束说明数据不完整
+     */
+    private int readByte() throws IOException {
+        if (position == limit && fill() == -1) {
+            throw new EOFException("gzip数据不完整");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * 从底层流读入缓冲区, 缓冲区中的有效数据已全部消费
+     */
+    private int fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n == -1) {
+            position = limit = 0;
+            return -1;
+        }
+        position = 0;
+        limit = n;
+        return n;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("流已关闭");
+        }
+    }
+}
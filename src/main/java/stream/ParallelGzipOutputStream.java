@@ -0,0 +1,350 @@
+package stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程gzip压缩输出流, 输出是标准的单成员gzip格式, 可用GZIPInputStream、gzip -d等任意工具解压。
+ * 输入按块切分, 各块在线程池中独立压缩, 以前一块的最后32KB作为预设字典, 压缩率接近单线程; 非最后一块以SYNC_FLUSH结束,
+ * 按字节对齐后可直接拼接。压缩结果按块的顺序写出, 同时在途的块数有上限, 内存占用约为 块大小 × 在途块数 × 2。
+ * 不是线程安全的, 同一时刻只能由一个线程写入。
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /**
+     * 默认块大小: 128KB
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * deflate的窗口大小, 也是预设字典的最大长度
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final OutputStream out;
+
+    private final int blockSize;
+
+    private final int level;
+
+    private final ExecutorService executor;
+
+    private final int maxInFlight;
+
+    /**
+     * 已提交、按顺序等待写出的块
+     */
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+
+    private int count;
+
+    /**
+     * 上一个提交的块, 作为下一块的字典
+     */
+    private byte[] previous;
+
+    private int previousCount;
+
+    private long totalIn;
+
+    private long totalOut;
+
+    private boolean finished;
+
+    private boolean closed;
+
+    /**
+     * 功能：创建压缩流，线程数为CPU核数
+     *
+     * @param out 输出流
+     */
+    public ParallelGzipOutputStream(OutputStream out) throws IOException {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 功能：创建压缩流，使用默认块大小与压缩级别
+     *
+     * @param out         输出流
+     * @param parallelism 压缩线程数
+     */
+    public ParallelGzipOutputStream(OutputStream out, int parallelism) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, parallelism);
+    }
+
+    /**
+     * 功能：创建压缩流
+     *
+     * @param out         输出流
+     * @param blockSize   块大小，不小于32KB
+     * @param level       压缩级别，0-9或Deflater.DEFAULT_COMPRESSION
+     * @param parallelism 压缩线程数
+     */
+    public ParallelGzipOutputStream(OutputStream out, int blockSize, int level, int parallelism) throws IOException {
+        if (out == null) {
+            throw new IllegalArgumentException("输出流不能为空");
+        }
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("块大小不能小于" + DICTIONARY_SIZE + ": " + blockSize);
+        }
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("压缩级别不正确: " + level);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + parallelism);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.maxInFlight = parallelism * 2;
+        this.block = new byte[blockSize];
+        //先写头部, 写入失败时还没有创建线程池
+        writeHeader();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "parallel-gzip-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == blockSize) {
+            submit(false);
+        }
+        block[count++] = (byte) b;
+        crc.update(b);
+        totalIn++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        //CRC在调用线程中按顺序计算，JDK的实现有硬件加速，远快于压缩
+        crc.update(bytes, offset, length);
+        totalIn += length;
+        while (length > 0) {
+            if (count == blockSize) {
+                submit(false);
+            }
+            int n = Math.min(length, blockSize - count);
+            System.arraycopy(bytes, offset, block, count, n);
+            count += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 功能：把已写入的数据压缩后全部写出，之后解压端可以读到这些数据
+     * 说明：会结束当前块，频繁调用会降低压缩率；finish之后仍可调用，只刷新底层输出流
+     */
+    @Override
+    public void flush() throws IOException {
+        if (finished && !closed) {
+            //与GZIPOutputStream一致, 包装流关闭时会先flush
+            out.flush();
+            return;
+        }
+        ensureOpen();
+        if (count > 0) {
+            submit(false);
+        }
+        drain(0);
+        out.flush();
+    }
+
+    /**
+     * 功能：写完压缩数据与gzip尾部，不关闭底层输出流
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        ensureOpen();
+        try {
+            submit(true);
+            drain(0);
+            writeTrailer();
+            finished = true;
+        } finally {
+            if (!finished) {
+                abort();
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            finish();
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    /**
+     * 功能：获取已写入的未压缩字节数
+     *
+     * @return 字节数
+     */
+    public long getTotalIn() {
+        return totalIn;
+    }
+
+    /**
+     * 功能：获取已写出的压缩字节数，包括gzip头部与尾部
+     *
+     * @return 字节数
+     */
+    public long getTotalOut() {
+        return totalOut;
+    }
+
+    /**
+     * 提交当前块, 在途的块数达到上限时先写出最早的块
+     */
+    private void submit(boolean last) throws IOException {
+        drain(maxInFlight - 1);
+        byte[] input = block;
+        int length = count;
+        byte[] dictionary = previous;
+        int dictionaryEnd = previousCount;
+        inFlight.add(executor.submit(() -> deflate(input, length, dictionary, dictionaryEnd, last)));
+        previous = input;
+        previousCount = length;
+        block = new byte[blockSize];
+        count = 0;
+        //顺便写出已经完成的块，减少延迟
+        while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+            writeBlock(inFlight.poll());
+        }
+    }
+
+    /**
+     * 按顺序写出块, 直到在途的块数不超过limit
+     */
+    private void drain(int limit) throws IOException {
+        while (inFlight.size() > limit) {
+            writeBlock(inFlight.poll());
+        }
+    }
+
+    private void writeBlock(Future<byte[]> future) throws IOException {
+        byte[] compressed;
+        try {
+            compressed = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new IOException("压缩时被中断", e);
+        } catch (ExecutionException e) {
+            abort();
+            throw new IOException("压缩失败", e.getCause());
+        }
+        out.write(compressed);
+        totalOut += compressed.length;
+    }
+
+    private byte[] deflate(byte[] input, int length, byte[] dictionary, int dictionaryEnd, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                int dictionaryLength = Math.min(DICTIONARY_SIZE, dictionaryEnd);
+                deflater.setDictionary(dictionary, dictionaryEnd - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(input, 0, length);
+            byte[] output = new byte[length + (length >> 3) + 64];
+            int size = 0;
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (size == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    size += deflater.deflate(output, size, output.length - size);
+                }
+            } else {
+                //SYNC_FLUSH输出未填满缓冲区时表示已全部输出
+                while (true) {
+                    if (size == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    int n = deflater.deflate(output, size, output.length - size, Deflater.SYNC_FLUSH);
+                    size += n;
+                    if (size < output.length) {
+                        break;
+                    }
+                }
+            }
+            return Arrays.copyOf(output, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        //ID1 ID2 CM=8(deflate) FLG=0 MTIME=0 XFL=0 OS=255(未知)
+        byte[] header = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+        out.write(header);
+        totalOut += header.length;
+    }
+
+    private void writeTrailer() throws IOException {
+        byte[] trailer = new byte[8];
+        writeIntLE(trailer, 0, (int) crc.getValue());
+        writeIntLE(trailer, 4, (int) totalIn);
+        out.write(trailer);
+        totalOut += trailer.length;
+    }
+
+    private static void writeIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * 出错后丢弃在途的块, 流不能再使用
+     */
+    private void abort() {
+        for (Future<byte[]> future : inFlight) {
+            future.cancel(true);
+        }
+        inFlight.clear();
+        finished = true;
+        executor.shutdownNow();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed || finished) {
+            throw new IOException("流已结束");
+        }
+    }
+}
@@ -8,18 +8,61 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
+import enums.DigestAlgorithm;
+import instrumentation.Instrumentation;
+import instrumentation.Instrumentation.Operation;
 
 public class StreamUtils {
+    /**
+     * 带摘要复制时的缓冲区大小
+     */
+    private static final int DIGEST_BUFFER_SIZE = 16384;
+
+    /**
+     * 压缩与解压复制时的缓冲区大小
+     */
+    private static final int COMPRESS_BUFFER_SIZE = 65536;
+
+    /**
+     * 文件摘要缓存的最大条数
+     */
+    private static final int DIGEST_CACHE_SIZE = 10000;
+
+    /**
+     * 文件摘要缓存，键为文件的绝对路径，按最近使用淘汰
+     */
+    private static final Map<String, CachedDigest> DIGEST_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedDigest>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedDigest> eldest) {
+                    return size() > DIGEST_CACHE_SIZE;
+                }
+            });
+
     /**
      * 功能：批量关闭流。
      *
-     * @param closeables 多个可关闭的对象
+     * @param closeables 多个可关闭的对象，为空的跳过
      */
     public static void closings(AutoCloseable... closeables) {
         if (closeables != null) {
             for (AutoCloseable closeable : closeables) {
+                if (closeable == null) {
+                    continue;
+                }
                 try {
                     closeable.close();
                 } catch (Exception e) {
@@ -54,6 +97,7 @@ public class StreamUtils {
             return total;
         }
 
+        long begin = Instrumentation.begin();
         try {
             byte[] buffer = new byte[2048];
             int bytesRead = -1;
@@ -69,9 +113,225 @@ public class StreamUtils {
                 closings(outputStream);
             }
         }
+        Instrumentation.end(Operation.STREAM_COPY, begin, total);
         return total;
     }
 
+    /**
+     * 功能：流处理，复制的同时计算摘要，不需要再读一遍数据；处理完后关闭流
+     * 示例：copy(in, out, DigestAlgorithm.MD5, DigestAlgorithm.SHA256).getHex(DigestAlgorithm.MD5) → 可直接用作ETag
+     * 说明：与不计算摘要的copy不同，流为空时抛出IllegalArgumentException而不是返回0，因为没有可以返回的摘要
+     *
+     * @param inputStream  输入流
+     * @param outputStream 输出流
+     * @param algorithms   一种或多种摘要算法
+     * @return 复制的字节数与摘要
+     */
+    public static DigestResult copy(InputStream inputStream, OutputStream outputStream, DigestAlgorithm... algorithms) throws IOException {
+        return copy(inputStream, outputStream, true, true, algorithms);
+    }
+
+    /**
+     * 功能：流处理，复制的同时计算摘要，用户可以选择是否关闭流
+     * 说明：与不计算摘要的copy不同，流为空时抛出IllegalArgumentException而不是返回0，因为没有可以返回的摘要
+     *
+     * @param inputStream       输入流
+     * @param outputStream      输出流
+     * @param closeInputStream  处理完后是否关闭输入流
+     * @param closeOutputStream 处理完后是否关闭输出流
+     * @param algorithms        一种或多种摘要算法
+     * @return 复制的字节数与摘要
+     */
+    public static DigestResult copy(InputStream inputStream, OutputStream outputStream, boolean closeInputStream,
+                                    boolean closeOutputStream, DigestAlgorithm... algorithms) throws IOException {
+        if (inputStream == null || outputStream == null) {
+            throw new IllegalArgumentException("输入流与输出流不能为空");
+        }
+        try {
+            return digestCopy(inputStream, outputStream, algorithms);
+        } finally {
+            if (closeInputStream) {
+                closings(inputStream);
+            }
+            if (closeOutputStream) {
+                closings(outputStream);
+            }
+        }
+    }
+
+    /**
+     * 功能：计算输入流的摘要，处理完后关闭流
+     *
+     * @param inputStream 输入流
+     * @param algorithms  一种或多种摘要算法
+     * @return 字节数与摘要
+     */
+    public static DigestResult digest(InputStream inputStream, DigestAlgorithm... algorithms) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("输入流不能为空");
+        }
+        try {
+            return digestCopy(inputStream, null, algorithms);
+        } finally {
+            closings(inputStream);
+        }
+    }
+
+    /**
+     * 功能：计算文件的摘要，按路径、大小与修改时间缓存，文件未变化时不再重复计算
+     * 说明：缓存最多10000个文件，按最近使用淘汰；修改时间的精度取决于文件系统，同一时刻内大小不变的修改无法识别
+     *
+     * @param file       文件
+     * @param algorithms 一种或多种摘要算法
+     * @return 字节数与摘要
+     */
+    public static DigestResult digest(File file, DigestAlgorithm... algorithms) throws IOException {
+        if (algorithms.length == 0) {
+            throw new IllegalArgumentException("至少需要一种摘要算法");
+        }
+        long begin = Instrumentation.begin();
+        Path path = file.toPath().toAbsolutePath().normalize();
+        String key = path.toString();
+        BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+        CachedDigest cached = DIGEST_CACHE.get(key);
+        if (cached != null && !cached.matches(before)) {
+            cached = null;
+        }
+        if (cached != null && cached.result.digests().keySet().containsAll(Arrays.asList(algorithms))) {
+            //命中缓存时没有读取数据, 只计调用次数与耗时; 未命中时由digestCopy统计
+            Instrumentation.end(Operation.STREAM_DIGEST, begin, 0);
+            return cached.result.select(algorithms);
+        }
+
+        DigestResult computed;
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            computed = digestCopy(inputStream, null, algorithms);
+        }
+        //读取期间文件没有变化才写入缓存，与已缓存的其它算法合并
+        BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+        if (computed.getCount() == before.size() && after.size() == before.size()
+                && after.lastModifiedTime().equals(before.lastModifiedTime())) {
+            EnumMap<DigestAlgorithm, byte[]> merged = new EnumMap<>(DigestAlgorithm.class);
+            if (cached != null) {
+                merged.putAll(cached.result.digests());
+            }
+            merged.putAll(computed.digests());
+            DIGEST_CACHE.put(key, new CachedDigest(before, new DigestResult(computed.getCount(), merged)));
+        }
+        return computed;
+    }
+
+    /**
+     * 功能：清空文件摘要缓存
+     */
+    public static void clearDigestCache() {
+        DIGEST_CACHE.clear();
+    }
+
+    /**
+     * 功能：流处理，复制的同时以gzip多线程压缩，线程数为CPU核数；处理完后关闭流
+     * 示例：copyCompressed(new FileInputStream("export.csv"), new FileOutputStream("export.csv.gz"))
+     * 说明：输出是标准gzip格式，各块并行压缩，同时在途的块数有上限，详见ParallelGzipOutputStream
+     *
+     * @param inputStream  未压缩的输入流
+     * @param outputStream 压缩数据的输出流
+     * @return 未压缩的字节数
+     */
+    public static long copyCompressed(InputStream inputStream, OutputStream outputStream) throws IOException {
+        return copyCompressed(inputStream, outputStream, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 功能：流处理，复制的同时以gzip多线程压缩；处理完后关闭流
+     *
+     * @param inputStream  未压缩的输入流
+     * @param outputStream 压缩数据的输出流
+     * @param parallelism  压缩线程数
+     * @return 未压缩的字节数
+     */
+    public static long copyCompressed(InputStream inputStream, OutputStream outputStream, int parallelism) throws IOException {
+        if (inputStream == null || outputStream == null) {
+            throw new IllegalArgumentException("输入流与输出流不能为空");
+        }
+        long begin = Instrumentation.begin();
+        try (InputStream in = inputStream;
+             ParallelGzipOutputStream out = new ParallelGzipOutputStream(outputStream, parallelism)) {
+            byte[] buffer = new byte[COMPRESS_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+            }
+            out.finish();
+            Instrumentation.end(Operation.STREAM_COMPRESS, begin, out.getTotalIn());
+            return out.getTotalIn();
+        } finally {
+            closings(outputStream);
+        }
+    }
+
+    /**
+     * 功能：流处理，复制的同时解压gzip数据，支持多个首尾相接的gzip成员；处理完后关闭流
+     *
+     * @param inputStream  gzip数据的输入流
+     * @param outputStream 解压数据的输出流
+     * @return 解压后的字节数
+     */
+    public static long copyDecompressed(InputStream inputStream, OutputStream outputStream) throws IOException {
+        if (inputStream == null || outputStream == null) {
+            throw new IllegalArgumentException("输入流与输出流不能为空");
+        }
+        long begin = Instrumentation.begin();
+        try (InputStream in = new MultiMemberGzipInputStream(inputStream)) {
+            byte[] buffer = new byte[COMPRESS_BUFFER_SIZE];
+            long total = 0;
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+                total += bytesRead;
+            }
+            Instrumentation.end(Operation.STREAM_DECOMPRESS, begin, total);
+            return total;
+        } finally {
+            closings(inputStream, outputStream);
+        }
+    }
+
+    /**
+     * 单次遍历数据: 每读入一块, 先写入输出流(可为空), 再更新所有摘要
+     */
+    private static DigestResult digestCopy(InputStream inputStream, OutputStream outputStream,
+                                           DigestAlgorithm[] algorithms) throws IOException {
+        if (algorithms.length == 0) {
+            throw new IllegalArgumentException("至少需要一种摘要算法");
+        }
+        long begin = Instrumentation.begin();
+        EnumSet<DigestAlgorithm> distinct = EnumSet.copyOf(Arrays.asList(algorithms));
+        DigestAlgorithm[] keys = distinct.toArray(new DigestAlgorithm[0]);
+        Digester[] digesters = new Digester[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            digesters[i] = Digester.of(keys[i]);
+        }
+        byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+        long total = 0;
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            if (outputStream != null) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+            for (Digester digester : digesters) {
+                digester.update(buffer, 0, bytesRead);
+            }
+            total += bytesRead;
+        }
+        EnumMap<DigestAlgorithm, byte[]> digests = new EnumMap<>(DigestAlgorithm.class);
+        for (int i = 0; i < keys.length; i++) {
+            digests.put(keys[i], digesters[i].digest());
+        }
+        //带输出流的是复制时顺带计算摘要, 计入复制
+        Instrumentation.end(outputStream != null ? Operation.STREAM_COPY : Operation.STREAM_DIGEST, begin, total);
+        return new DigestResult(total, digests);
+    }
+
     /**
      * 功能：读取文本流，也可以将流转成字符串
      *
@@ -153,6 +413,7 @@ public class StreamUtils {
      * @return 字符串集合
      */
     public static List<String> readingLineFormTextFile(InputStream inputStream, String encode) throws IOException {
+        long begin = Instrumentation.begin();
         List<String> result = new ArrayList<>();
         String text = asString(inputStream, encode, true);
         BufferedReader reader = new BufferedReader(new StringReader(text));
@@ -160,6 +421,7 @@ public class StreamUtils {
         while ((line = reader.readLine()) != null) {
             result.add(line);
         }
+        Instrumentation.end(Operation.STREAM_READ_LINES, begin, text.length());
         return result;
     }
 
@@ -172,5 +434,23 @@ public class StreamUtils {
     public static List<String> readingLineFormTextFile(InputStream inputStream) throws IOException {
         return readingLineFormTextFile(inputStream, "UTF-8");
     }
-}
 
+    /**
+     * 缓存的文件摘要, 文件大小与修改时间都未变化时有效
+     */
+    private static final class CachedDigest {
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final DigestResult result;
+
+        private CachedDigest(BasicFileAttributes attributes, DigestResult result) {
+            this.size = attributes.size();
+            this.lastModifiedTime = attributes.lastModifiedTime();
+            this.result = result;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModifiedTime.equals(attributes.lastModifiedTime());
+        }
+    }
+}
@@ -2,6 +2,9 @@ package string;
 
 import java.util.regex.Pattern;
 
+import instrumentation.Instrumentation;
+import instrumentation.Instrumentation.Operation;
+
 public final class StringUtils {
 
     /**
@@ -39,8 +42,11 @@ public final class StringUtils {
      */
     public static boolean isEmail(String email) {
         if (StringUtils.hasLength(email)) {
+            long begin = Instrumentation.begin();
             String regex = "^[\\w!#$%&'*+/=?^_`{|}~-]+(?:\\.[\\w!#$%&'*+/=?^_`{|}~-]+)*@(?:[\\w](?:[\\w-]*[\\w])?\\.)+[\\w](?:[\\w-]*[\\w])?$";
-            return Pattern.matches(regex, email);
+            boolean matches = Pattern.matches(regex, email);
+            Instrumentation.end(Operation.STRING_MATCH, begin, email.length());
+            return matches;
         } else {
             return false;
         }
@@ -56,8 +62,11 @@ public final class StringUtils {
      */
     public static boolean isPhone(String src) {
         if (StringUtils.hasLength(src)) {
+            long begin = Instrumentation.begin();
             String regex = "^[1][3,5,7,8][0-9]{9}$";
-            return Pattern.matches(regex, src);
+            boolean matches = Pattern.matches(regex, src);
+            Instrumentation.end(Operation.STRING_MATCH, begin, src.length());
+            return matches;
         } else {
             return false;
         }
@@ -73,8 +82,11 @@ public final class StringUtils {
      */
     public static boolean isLetter(String src) {
         if (StringUtils.hasLength(src)) {
+            long begin = Instrumentation.begin();
             String regex = "[a-zA-Z]+";
-            return Pattern.matches(regex, src);
+            boolean matches = Pattern.matches(regex, src);
+            Instrumentation.end(Operation.STRING_MATCH, begin, src.length());
+            return matches;
         } else {
             return false;
         }
@@ -90,6 +102,7 @@ public final class StringUtils {
      */
     public static String hidden(String src, Integer start, Integer end) {
         if (StringUtils.hasText(src) && start != null) {
+            long begin = Instrumentation.begin();
             if (end == null) {
                 end = src.length();
             }
@@ -102,6 +115,7 @@ public final class StringUtils {
                     request.append(srcs[i]);
                 }
             }
+            Instrumentation.end(Operation.STRING_HIDDEN, begin, srcs.length);
             return request.toString();
         } else {
             return src;
@@ -0,0 +1,255 @@
+package web;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import stream.BufferPool;
+
+/**
+ * 分块、可续传的上传接收器。
+ * 每个上传以上传ID标识, 请求体按偏移直接写入目录下的“上传ID.part”文件, 每个请求只占用一个池化的缓冲区, 内存占用与文件大小无关;
+ * 网络中断后客户端用getOffset查询已接收的长度, 从该偏移继续上传, 全部接收后complete移动到目标位置。
+ * 同一个上传ID同时只允许一个请求写入, 长时间没有写入的.part文件由cleanAbandoned清理。
+ */
+public class UploadReceiver {
+
+    /**
+     * 未完成上传的文件扩展名
+     */
+    private static final String PART_SUFFIX = ".part";
+
+    /**
+     * 上传ID只允许字母、数字、下划线与横线，避免路径穿越
+     */
+    private static final Pattern UPLOAD_ID = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+
+    /**
+     * 每个请求的写缓冲区: 64KB，池中最多保留64个
+     */
+    private static final BufferPool BUFFER_POOL = new BufferPool(64 * 1024, 64);
+
+    private final File directory;
+
+    /**
+     * 正在写入的上传ID
+     */
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    private long reservedSpace;
+
+    private long maxUploadSize = Long.MAX_VALUE;
+
+    /**
+     * 功能：创建接收器，目录不存在时自动创建
+     *
+     * @param directory 存放未完成上传的目录
+     */
+    public UploadReceiver(File directory) throws IOException {
+        this.directory = directory.getAbsoluteFile();
+        Files.createDirectories(this.directory.toPath());
+    }
+
+    /**
+     * 功能：设置磁盘至少保留的可用空间，可用空间不足时拒绝新的分块
+     *
+     * @param bytes 字节数
+     * @return 本接收器
+     */
+    public UploadReceiver reservedSpace(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("保留空间不能为负数: " + bytes);
+        }
+        this.reservedSpace = bytes;
+        return this;
+    }
+
+    /**
+     * 功能：设置单个上传的最大字节数
+     *
+     * @param bytes 字节数
+     * @return 本接收器
+     */
+    public UploadReceiver maxUploadSize(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("上传大小不能为负数: " + bytes);
+        }
+        this.maxUploadSize = bytes;
+        return this;
+    }
+
+    /**
+     * 功能：获取已接收的字节数，即续传时下一个分块的偏移
+     *
+     * @param uploadId 上传ID
+     * @return 已接收的字节数，没有该上传时为0
+     */
+    public long getOffset(String uploadId) {
+        return partFile(uploadId).length();
+    }
+
+    /**
+     * 功能：接收一个分块
+     * 说明：偏移不能超过已接收的长度；小于已接收的长度时视为重传，丢弃偏移之后的数据再写入
+     *
+     * @param uploadId      上传ID
+     * @param offset        分块在文件中的偏移
+     * @param contentLength 分块的字节数，未知时为-1，已知时用于检查磁盘空间与上传大小
+     * @param inputStream   分块内容，读到流末尾为止，不关闭流
+     * @return 写入后已接收的字节数
+     */
+    public long receive(String uploadId, long offset, long contentLength, InputStream inputStream) throws IOException {
+        File part = partFile(uploadId);
+        if (offset < 0) {
+            throw new IllegalArgumentException("偏移不能为负数: " + offset);
+        }
+        if (contentLength >= 0 && offset + contentLength > maxUploadSize) {
+            throw new IllegalArgumentException("上传大小超过限制: " + (offset + contentLength) + " > " + maxUploadSize);
+        }
+        //按目录所在的文件存储计算，目录可能挂载在根目录之外的磁盘上
+        long freeSpace = Files.getFileStore(directory.toPath()).getUsableSpace();
+        if (freeSpace - Math.max(contentLength, 0) < reservedSpace) {
+            throw new IllegalStateException("磁盘可用空间不足: " + freeSpace + "字节");
+        }
+        //先取缓冲区再加锁，分配失败时不会留下无法释放的锁
+        ByteBuffer buffer = BUFFER_POOL.acquire();
+        try {
+            lock(uploadId);
+            try {
+                //先检查偏移再创建文件，错误的首个请求不会留下空的.part文件
+                long received = part.length();
+                if (offset > received) {
+                    throw new IllegalArgumentException("偏移超出已接收的长度: " + offset + " > " + received);
+                }
+                try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    if (offset < channel.size()) {
+                        channel.truncate(offset);
+                    }
+                    long position = offset;
+                    ReadableByteChannel source = Channels.newChannel(inputStream);
+                    while (source.read(buffer) != -1) {
+                        if (position + buffer.position() > maxUploadSize) {
+                            throw new IllegalArgumentException("上传大小超过限制: " + maxUploadSize);
+                        }
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                        buffer.clear();
+                    }
+                    return position;
+                }
+            } finally {
+                active.remove(uploadId);
+            }
+        } finally {
+            BUFFER_POOL.release(buffer);
+        }
+    }
+
+    /**
+     * 功能：完成上传，把已接收的文件移动到目标位置，目标已存在时覆盖
+     *
+     * @param uploadId     上传ID
+     * @param expectedSize 文件的完整大小，不校验时为-1
+     * @param target       目标文件
+     * @return 目标文件
+     */
+    public File complete(String uploadId, long expectedSize, File target) throws IOException {
+        File part = partFile(uploadId);
+        lock(uploadId);
+        try {
+            if (!part.isFile()) {
+                throw new IllegalStateException("上传不存在: " + uploadId);
+            }
+            if (expectedSize >= 0 && part.length() != expectedSize) {
+                throw new IllegalStateException("上传未完成: " + part.length() + " / " + expectedSize);
+            }
+            Path targetPath = target.getAbsoluteFile().toPath();
+            Path parent = targetPath.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try {
+                Files.move(part.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                //跨文件系统时退回复制后删除
+                Files.move(part.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        } finally {
+            active.remove(uploadId);
+        }
+    }
+
+    /**
+     * 功能：放弃上传，删除已接收的数据
+     *
+     * @param uploadId 上传ID
+     * @return 是否删除了数据
+     */
+    public boolean abort(String uploadId) throws IOException {
+        File part = partFile(uploadId);
+        lock(uploadId);
+        try {
+            return Files.deleteIfExists(part.toPath());
+        } finally {
+            active.remove(uploadId);
+        }
+    }
+
+    /**
+     * 功能：清理超过指定时间没有写入的未完成上传，正在写入的上传不受影响
+     * 场景：定时任务中调用，回收客户端放弃的上传占用的磁盘
+     *
+     * @param maxIdleMillis 最长空闲时间，毫秒
+     * @return 删除的文件数
+     */
+    public int cleanAbandoned(long maxIdleMillis) throws IOException {
+        long deadline = System.currentTimeMillis() - maxIdleMillis;
+        int deleted = 0;
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(directory.toPath(), "*" + PART_SUFFIX)) {
+            for (Path part : parts) {
+                String fileName = part.getFileName().toString();
+                String uploadId = fileName.substring(0, fileName.length() - PART_SUFFIX.length());
+                if (!UPLOAD_ID.matcher(uploadId).matches() || !active.add(uploadId)) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(part).toMillis() < deadline && Files.deleteIfExists(part)) {
+                        deleted++;
+                    }
+                } finally {
+                    active.remove(uploadId);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private File partFile(String uploadId) {
+        if (uploadId == null || !UPLOAD_ID.matcher(uploadId).matches()) {
+            throw new IllegalArgumentException("上传ID不正确: " + uploadId);
+        }
+        return new File(directory, uploadId + PART_SUFFIX);
+    }
+
+    private void lock(String uploadId) {
+        if (!active.add(uploadId)) {
+            throw new IllegalStateException("上传正在进行中: " + uploadId);
+        }
+    }
+}
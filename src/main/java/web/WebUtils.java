@@ -55,6 +55,34 @@ public class WebUtils {
         download(new FileInputStream(localFile), response, localFile.getName(), contentType, inline);
     }
 
+    /**
+     * 功能：接收一个分块上传请求，请求体直接写入磁盘，不在内存中缓存
+     * 说明：上传ID取自请求头Upload-Id或参数uploadId，偏移取自请求头Upload-Offset或参数offset，默认为0；
+     * 客户端中断后可用receiver.getOffset(uploadId)查询已接收的长度后续传
+     *
+     * @param receiver 上传接收器
+     * @param request  请求，Content-Type不能是表单，否则请求体会被解析为参数
+     * @return 写入后已接收的字节数
+     * @throws IOException
+     */
+    public static long receiveUpload(UploadReceiver receiver, HttpServletRequest request) throws IOException {
+        String uploadId = request.getHeader("Upload-Id");
+        if (!StringUtils.hasText(uploadId)) {
+            uploadId = request.getParameter("uploadId");
+        }
+        String offset = request.getHeader("Upload-Offset");
+        if (!StringUtils.hasText(offset)) {
+            offset = getStringByRequestParameter(request, "offset", "0");
+        }
+        long position;
+        try {
+            position = Long.parseLong(offset.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("偏移不正确: " + offset);
+        }
+        return receiver.receive(uploadId, position, request.getContentLengthLong(), request.getInputStream());
+    }
+
     /**
      * 功能：获取前端字符串参数
      *
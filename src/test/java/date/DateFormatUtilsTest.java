@@ -0,0 +1,322 @@
+package date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import enums.DatePattern;
+
+/**
+ * DateFormatUtils与DateTimeFormatter的差分测试: 同一输入两边的格式化结果与解析结果必须一致
+ */
+public class DateFormatUtilsTest {
+
+    private static final String[] ZONES = {"UTC", "Asia/Shanghai", "America/New_York", "Europe/London",
+            "Asia/Kolkata", "Australia/Lord_Howe", "America/St_Johns"};
+
+    private static final Map<DatePattern, DateTimeFormatter> FORMATTERS = new EnumMap<>(DatePattern.class);
+
+    static {
+        FORMATTERS.put(DatePattern.DATE, strict("uuuu-MM-dd"));
+        FORMATTERS.put(DatePattern.COMPACT_DATE, strict("uuuuMMdd"));
+        FORMATTERS.put(DatePattern.DATE_TIME, strict("uuuu-MM-dd HH:mm:ss"));
+        FORMATTERS.put(DatePattern.DATE_TIME_MILLIS, strict("uuuu-MM-dd HH:mm:ss.SSS"));
+        //XXXXX: 偏移为0输出Z, 偏移带秒时输出秒, 与DateFormatUtils一致
+        FORMATTERS.put(DatePattern.ISO_OFFSET_DATE_TIME, strict("uuuu-MM-dd'T'HH:mm:ss.SSSXXXXX"));
+        FORMATTERS.put(DatePattern.ISO_INSTANT, strict("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC));
+    }
+
+    /**
+     * ISO格式解析时接受的各种写法, 依次尝试
+     */
+    private static final DateTimeFormatter[] ISO_PARSERS = {
+            isoParser(null),
+            isoParser("+HH:MM:ss"),
+            isoParser("+HHMM"),
+            isoParser("+HH")
+    };
+
+    private final Clock original = DateUtils.getClock();
+
+    @After
+    public void restoreClock() {
+        DateUtils.setClock(original);
+    }
+
+    @Test
+    public void roundTripsEveryYearInEveryZone() {
+        Random random = new Random(20200423L);
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            DateUtils.setClock(Clock.system(zone));
+            for (int year = 1; year <= 9999; year++) {
+                LocalDateTime start = LocalDateTime.of(year, 1, 1, 0, 0);
+                LocalDateTime local = start.plus(random.nextInt(start.toLocalDate().lengthOfYear() * 86400) * 1000L
+                        + random.nextInt(1000), ChronoUnit.MILLIS);
+                assertRoundTrip(zone, toUtc(local, zone));
+            }
+            assertRoundTrip(zone, toUtc(LocalDateTime.of(1, 1, 1, 0, 0), zone));
+            assertRoundTrip(zone, toUtc(LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999000000), zone));
+        }
+    }
+
+    @Test
+    public void roundTripsAroundZoneTransitions() {
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            DateUtils.setClock(Clock.system(zone));
+            ZoneRules rules = zone.getRules();
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.parse("1850-01-01T00:00:00Z"));
+            while (transition != null && transition.getInstant().isBefore(Instant.parse("2500-01-01T00:00:00Z"))) {
+                long instant = transition.getInstant().toEpochMilli();
+                long window = Math.abs(transition.getDuration().toMillis());
+                for (long delta : new long[]{-window - 1, -window, -1, 0, 1, window - 1, window}) {
+                    assertRoundTrip(zone, instant + delta);
+                }
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+    }
+
+    @Test
+    public void parsesIsoOffsetsAndFractions() {
+        Random random = new Random(1L);
+        String[] offsetForms = {"", "Z", "+HH", "+HHMM", "+HH:MM", "+HH:MM:SS"};
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            DateUtils.setClock(Clock.system(zone));
+            for (int i = 0; i < 20000; i++) {
+                StringBuilder text = new StringBuilder();
+                text.append(String.format("%04d-%02d-%02dT%02d:%02d", 1 + random.nextInt(9999), 1 + random.nextInt(12),
+                        1 + random.nextInt(28), random.nextInt(24), random.nextInt(60)));
+                if (random.nextInt(4) != 0) {
+                    text.append(String.format(":%02d", random.nextInt(60)));
+                    int digits = random.nextInt(10);
+                    if (digits > 0) {
+                        text.append('.');
+                        for (int d = 0; d < digits; d++) {
+                            text.append((char) ('0' + random.nextInt(10)));
+                        }
+                    }
+                }
+                String form = offsetForms[random.nextInt(offsetForms.length)];
+                int offsetSeconds = random.nextInt(18 * 3600 + 1);
+                if (form.endsWith("MM")) {
+                    offsetSeconds -= offsetSeconds % 60;
+                } else if (form.equals("+HH")) {
+                    offsetSeconds -= offsetSeconds % 3600;
+                }
+                char sign = random.nextBoolean() ? '+' : '-';
+                int hours = offsetSeconds / 3600;
+                int minutes = offsetSeconds / 60 % 60;
+                int seconds = offsetSeconds % 60;
+                switch (form) {
+                    case "Z":
+                        text.append('Z');
+                        break;
+                    case "+HH":
+                        text.append(sign).append(String.format("%02d", hours));
+                        break;
+                    case "+HHMM":
+                        text.append(sign).append(String.format("%02d%02d", hours, minutes));
+                        break;
+                    case "+HH:MM":
+                        text.append(sign).append(String.format("%02d:%02d", hours, minutes));
+                        break;
+                    case "+HH:MM:SS":
+                        text.append(sign).append(String.format("%02d:%02d:%02d", hours, minutes, seconds));
+                        break;
+                    default:
+                        break;
+                }
+                String value = text.toString();
+                Long expected = referenceParse(value, DatePattern.ISO_OFFSET_DATE_TIME, zone);
+                assertEquals(value, expected, Long.valueOf(DateFormatUtils.parse(value, DatePattern.ISO_OFFSET_DATE_TIME)));
+                assertEquals(value, expected, Long.valueOf(DateFormatUtils.parse(value, DatePattern.ISO_INSTANT)));
+                byte[] bytes = ("[" + value + "]").getBytes(StandardCharsets.US_ASCII);
+                assertEquals(value, expected.longValue(),
+                        DateFormatUtils.parse(bytes, 1, bytes.length - 1, DatePattern.ISO_OFFSET_DATE_TIME));
+            }
+        }
+    }
+
+    @Test
+    public void tryParseRejectsWhatDateTimeFormatterRejects() {
+        Object[][] cases = {
+                {DatePattern.DATE, ""},
+                {DatePattern.DATE, "2019-02-29"},
+                {DatePattern.DATE, "1900-02-29"},
+                {DatePattern.DATE, "2020-13-01"},
+                {DatePattern.DATE, "2020-00-10"},
+                {DatePattern.DATE, "2020-04-00"},
+                {DatePattern.DATE, "2020-04-31"},
+                {DatePattern.DATE, "2020-4-23"},
+                {DatePattern.DATE, "2020/04/23"},
+                {DatePattern.DATE, "2020-04-23 "},
+                {DatePattern.DATE, "2020-04-2x"},
+                {DatePattern.DATE, "-020-04-23"},
+                {DatePattern.COMPACT_DATE, "2020423"},
+                {DatePattern.COMPACT_DATE, "202004231"},
+                {DatePattern.COMPACT_DATE, "20190229"},
+                {DatePattern.COMPACT_DATE, "2020-423"},
+                {DatePattern.DATE_TIME, "2020-04-23"},
+                {DatePattern.DATE_TIME, "2020-04-23T08:30:16"},
+                {DatePattern.DATE_TIME, "2020-04-23 24:00:00"},
+                {DatePattern.DATE_TIME, "2020-04-23 08:60:16"},
+                {DatePattern.DATE_TIME, "2020-04-23 08:30:60"},
+                {DatePattern.DATE_TIME, "2020-04-23 8:30:16"},
+                {DatePattern.DATE_TIME, "2020-04-23 08:30:16.250"},
+                {DatePattern.DATE_TIME_MILLIS, "2020-04-23 08:30:16"},
+                {DatePattern.DATE_TIME_MILLIS, "2020-04-23 08:30:16.25"},
+                {DatePattern.DATE_TIME_MILLIS, "2020-04-23 08:30:16,250"},
+                {DatePattern.DATE_TIME_MILLIS, "2020-04-23 08:30:16.2500"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23 08:30:16Z"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:1"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16.1234567890"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30.250"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16+8:00"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16+08:0"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16+08:60"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16+19:00"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16+18:00:01"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16+08:00x"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-04-23T08:30:16ZZ"},
+                {DatePattern.ISO_OFFSET_DATE_TIME, "2020-02-30T08:30:16Z"},
+                {DatePattern.ISO_INSTANT, "2020-04-23T24:00Z"},
+                {DatePattern.ISO_INSTANT, "2020-04-23T08:30:16.250 Z"},
+        };
+        ZoneId zone = ZoneId.of("Asia/Shanghai");
+        DateUtils.setClock(Clock.system(zone));
+        for (Object[] item : cases) {
+            DatePattern pattern = (DatePattern) item[0];
+            String text = (String) item[1];
+            assertNull(pattern + " " + text, referenceParse(text, pattern, zone));
+            assertEquals(pattern + " " + text, -1L, DateFormatUtils.tryParse(text, 0, text.length(), pattern, -1L));
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(pattern + " " + text, -1L, DateFormatUtils.tryParse(bytes, 0, bytes.length, pattern, -1L));
+            assertFalse(pattern + " " + text, DateFormatUtils.isValid(text, pattern));
+        }
+    }
+
+    @Test
+    public void tryParseRejectsInvalidRanges() {
+        String text = "2020-04-23";
+        assertEquals(-1L, DateFormatUtils.tryParse((CharSequence) null, 0, 0, DatePattern.DATE, -1L));
+        assertEquals(-1L, DateFormatUtils.tryParse(text, -1, text.length(), DatePattern.DATE, -1L));
+        assertEquals(-1L, DateFormatUtils.tryParse(text, 0, text.length() + 1, DatePattern.DATE, -1L));
+        assertEquals(-1L, DateFormatUtils.tryParse(text, 5, 4, DatePattern.DATE, -1L));
+        assertEquals(-1L, DateFormatUtils.tryParse((byte[]) null, 0, 0, DatePattern.DATE, -1L));
+        assertFalse(DateFormatUtils.isValid(null, DatePattern.DATE));
+        assertTrue(DateFormatUtils.isValid(text, DatePattern.DATE));
+        //以下写法DateTimeFormatter接受, 本类更严格: 小数秒为1-9位, UTC只接受大写Z
+        assertFalse(DateFormatUtils.isValid("2020-04-23T08:30:16.", DatePattern.ISO_OFFSET_DATE_TIME));
+        assertFalse(DateFormatUtils.isValid("2020-04-23T08:30:16z", DatePattern.ISO_OFFSET_DATE_TIME));
+    }
+
+    /**
+     * 以DateTimeFormatter为基准校验格式化结果, 并校验解析格式化结果与基准解析一致
+     */
+    private static void assertRoundTrip(ZoneId zone, long epochMilli) {
+        for (DatePattern pattern : DatePattern.values()) {
+            ZonedDateTime time = Instant.ofEpochMilli(epochMilli).atZone(pattern == DatePattern.ISO_INSTANT ? ZoneOffset.UTC : zone);
+            if (time.getYear() < 0 || time.getYear() > 9999) {
+                //超出0000-9999的范围, 格式化会抛出异常
+                continue;
+            }
+            String expected = FORMATTERS.get(pattern).format(time);
+            String message = zone + " " + pattern + " " + epochMilli;
+            assertEquals(message, expected, DateFormatUtils.format(epochMilli, pattern));
+            assertEquals(message, expected, DateFormatUtils.format(epochMilli, pattern, new StringBuilder()).toString());
+            char[] chars = new char[40];
+            int charCount = DateFormatUtils.format(epochMilli, pattern, chars, 3);
+            assertEquals(message, expected, new String(chars, 3, charCount));
+            byte[] bytes = new byte[40];
+            int byteCount = DateFormatUtils.format(epochMilli, pattern, bytes, 5);
+            assertEquals(message, expected, new String(bytes, 5, byteCount, StandardCharsets.US_ASCII));
+
+            Long reference = referenceParse(expected, pattern, zone);
+            assertEquals(message, reference, Long.valueOf(DateFormatUtils.parse(expected, pattern)));
+            assertEquals(message, reference.longValue(), DateFormatUtils.parse(bytes, 5, 5 + byteCount, pattern));
+            if (pattern == DatePattern.ISO_OFFSET_DATE_TIME || pattern == DatePattern.ISO_INSTANT) {
+                assertEquals(message, epochMilli, reference.longValue());
+            }
+        }
+    }
+
+    /**
+     * 基准解析: 不合法时返回null, 没有偏移的时间按标准时间(两个偏移中较小的一个)换算
+     */
+    private static Long referenceParse(String text, DatePattern pattern, ZoneId zone) {
+        try {
+            switch (pattern) {
+                case DATE:
+                case COMPACT_DATE:
+                    return toUtc(LocalDate.parse(text, FORMATTERS.get(pattern)).atStartOfDay(), zone);
+                case DATE_TIME:
+                case DATE_TIME_MILLIS:
+                    return toUtc(LocalDateTime.parse(text, FORMATTERS.get(pattern)), zone);
+                default:
+                    for (DateTimeFormatter parser : ISO_PARSERS) {
+                        try {
+                            if (parser == ISO_PARSERS[0]) {
+                                return toUtc(LocalDateTime.parse(text, parser), zone);
+                            }
+                            return OffsetDateTime.parse(text, parser).toInstant().toEpochMilli();
+                        } catch (DateTimeParseException e) {
+                            //尝试下一种写法
+                        }
+                    }
+                    return null;
+            }
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static long toUtc(LocalDateTime local, ZoneId zone) {
+        ZoneRules rules = zone.getRules();
+        ZoneOffsetTransition transition = rules.getTransition(local);
+        ZoneOffset offset = transition == null ? rules.getOffset(local)
+                : transition.getOffsetBefore().getTotalSeconds() < transition.getOffsetAfter().getTotalSeconds()
+                ? transition.getOffsetBefore() : transition.getOffsetAfter();
+        return local.toInstant(offset).toEpochMilli();
+    }
+
+    private static DateTimeFormatter strict(String pattern) {
+        return DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    private static DateTimeFormatter isoParser(String offsetPattern) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().append(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        if (offsetPattern != null) {
+            builder.appendOffset(offsetPattern, "Z");
+        }
+        return builder.toFormatter().withResolverStyle(ResolverStyle.STRICT);
+    }
+}
@@ -0,0 +1,178 @@
+package date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Test;
+
+import enums.Season;
+
+/**
+ * 毫秒时间戳运算与Calendar实现的等价测试, 范围为1901-2300年的每一天
+ * 更早的时间按说明存在差异: 1582年之前为外推格里高利历, 上海等时区1901年之前的地方平时与Calendar不同
+ */
+public class DateUtilsTest {
+
+    private static final String[] ZONES = {"UTC", "Asia/Shanghai", "America/New_York", "Europe/London",
+            "Asia/Kolkata", "Australia/Lord_Howe", "America/Sao_Paulo", "Asia/Tehran"};
+
+    private static final int[] DAY_OFFSETS = {1, -1, 31};
+
+    private static final int[] MONTH_OFFSETS = {1, -1, 13};
+
+    private final Clock original = DateUtils.getClock();
+
+    @After
+    public void restoreClock() {
+        DateUtils.setClock(original);
+    }
+
+    @Test
+    public void civilCalendarMatchesLocalDateForEveryDay() {
+        long first = LocalDate.of(1, 1, 1).toEpochDay();
+        long last = LocalDate.of(9999, 12, 31).toEpochDay();
+        for (long epochDay = first; epochDay <= last; epochDay++) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            long packed = CivilCalendar.civilFromDays(epochDay);
+            assertEquals(date.toString(), date.getYear(), CivilCalendar.year(packed));
+            assertEquals(date.toString(), date.getMonthValue(), CivilCalendar.month(packed));
+            assertEquals(date.toString(), date.getDayOfMonth(), CivilCalendar.day(packed));
+            assertEquals(date.toString(), epochDay, CivilCalendar.daysFromCivil(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            assertEquals(date.toString(), date.getDayOfWeek().getValue(), CivilCalendar.dayOfWeek(epochDay));
+            if (date.getDayOfMonth() == 1) {
+                assertEquals(date.toString(), date.lengthOfMonth(), CivilCalendar.lengthOfMonth(date.getYear(), date.getMonthValue()));
+                assertEquals(date.toString(), date.isLeapYear(), CivilCalendar.isLeapYear(date.getYear()));
+            }
+        }
+    }
+
+    @Test
+    public void epochMilliMethodsMatchCalendarForEveryDay() {
+        Random random = new Random(20200423L);
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            DateUtils.setClock(Clock.system(zone));
+            GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone(zone));
+            for (LocalDate date = LocalDate.of(1901, 1, 2); date.getYear() < 2300; date = date.plusDays(1)) {
+                calendar.clear();
+                calendar.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth(),
+                        random.nextInt(24), random.nextInt(60), random.nextInt(60));
+                calendar.set(Calendar.MILLISECOND, random.nextInt(1000));
+                long epochMilli = calendar.getTimeInMillis();
+                String message = id + " " + date + " " + epochMilli;
+
+                assertEquals(message, startOfDay(calendar, epochMilli), DateUtils.getStartOfDay(epochMilli));
+                assertEquals(message, firstDayOfMonth(calendar, epochMilli), DateUtils.getFirstDayOfMonth(epochMilli));
+                assertEquals(message, lastDayOfMonth(calendar, epochMilli), DateUtils.getLastDayOfMonth(epochMilli));
+                for (int days : DAY_OFFSETS) {
+                    assertEquals(message + " +" + days + "d", add(calendar, epochMilli, Calendar.DAY_OF_MONTH, days),
+                            DateUtils.addDays(epochMilli, days));
+                }
+                for (int months : MONTH_OFFSETS) {
+                    assertEquals(message + " +" + months + "m", add(calendar, epochMilli, Calendar.MONTH, months),
+                            DateUtils.addMonths(epochMilli, months));
+                }
+                calendar.setTimeInMillis(epochMilli);
+                assertEquals(message, dayOfWeek(calendar.get(Calendar.DAY_OF_WEEK)), DateUtils.getDayOfWeek(epochMilli));
+                assertSame(message, seasonOf(calendar.get(Calendar.MONTH)), DateUtils.getSeason(epochMilli));
+
+                Date source = new Date(epochMilli);
+                assertEquals(message, firstDayOfMonth(calendar, epochMilli), DateUtils.getFirstDayOfMonth(source).getTime());
+                assertEquals(message, lastDayOfMonth(calendar, epochMilli), DateUtils.getLastDayOfMonth(source).getTime());
+            }
+        }
+    }
+
+    @Test
+    public void bulkMethodsMatchSingleValueMethods() {
+        Random random = new Random(7L);
+        DateUtils.setClock(Clock.system(ZoneId.of("America/New_York")));
+        long[] source = new long[1000];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = (long) (random.nextDouble() * 1.2e13) - 2000000000000L;
+        }
+        long[] firstDays = DateUtils.getFirstDayOfMonth(source);
+        long[] lastDays = DateUtils.getLastDayOfMonth(source);
+        long[] startOfDays = DateUtils.getStartOfDay(source);
+        for (int i = 0; i < source.length; i++) {
+            assertEquals(DateUtils.getFirstDayOfMonth(source[i]), firstDays[i]);
+            assertEquals(DateUtils.getLastDayOfMonth(source[i]), lastDays[i]);
+            assertEquals(DateUtils.getStartOfDay(source[i]), startOfDays[i]);
+        }
+    }
+
+    @Test
+    public void setClockSwitchesZoneForEpochMilliMethods() {
+        long epochMilli = 1587601816250L;
+        DateUtils.setClock(Clock.system(ZoneId.of("Asia/Shanghai")));
+        assertEquals(1587571200000L, DateUtils.getStartOfDay(epochMilli));
+        DateUtils.setClock(Clock.system(ZoneId.of("UTC")));
+        assertEquals(1587600000000L, DateUtils.getStartOfDay(epochMilli));
+    }
+
+    private static long startOfDay(Calendar calendar, long epochMilli) {
+        calendar.setTimeInMillis(epochMilli);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long firstDayOfMonth(Calendar calendar, long epochMilli) {
+        calendar.setTimeInMillis(epochMilli);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long lastDayOfMonth(Calendar calendar, long epochMilli) {
+        calendar.setTimeInMillis(epochMilli);
+        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+        calendar.set(Calendar.HOUR_OF_DAY, 23);
+        calendar.set(Calendar.MINUTE, 59);
+        calendar.set(Calendar.SECOND, 59);
+        calendar.set(Calendar.MILLISECOND, 999);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long add(Calendar calendar, long epochMilli, int field, int amount) {
+        calendar.setTimeInMillis(epochMilli);
+        calendar.add(field, amount);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Calendar的星期(1为星期日)换算为DayOfWeek的值(1为星期一)
+     */
+    private static int dayOfWeek(int calendarDayOfWeek) {
+        return calendarDayOfWeek == Calendar.SUNDAY ? DayOfWeek.SUNDAY.getValue() : calendarDayOfWeek - 1;
+    }
+
+    private static Season seasonOf(int calendarMonth) {
+        if (calendarMonth >= Calendar.MARCH && calendarMonth <= Calendar.MAY) {
+            return Season.SPRING;
+        }
+        if (calendarMonth >= Calendar.JUNE && calendarMonth <= Calendar.AUGUST) {
+            return Season.SUMMER;
+        }
+        if (calendarMonth >= Calendar.SEPTEMBER && calendarMonth <= Calendar.NOVEMBER) {
+            return Season.AUTUMN;
+        }
+        return Season.WINTER;
+    }
+}
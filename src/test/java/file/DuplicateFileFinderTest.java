@@ -0,0 +1,125 @@
+package file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import file.DuplicateFileFinder.Report;
+
+/**
+ * DuplicateFileFinder的分阶段比较、硬链接与摘要索引测试
+ */
+public class DuplicateFileFinderTest {
+
+    /**
+     * 大于首尾部分摘要的范围, 中间的内容只有完整摘要能区分
+     */
+    private static final int FILE_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    private byte[] content;
+
+    @Before
+    public void createRoot() throws IOException {
+        root = folder.newFolder("root").toPath();
+        content = new byte[FILE_SIZE];
+        new Random(42L).nextBytes(content);
+    }
+
+    @Test
+    public void sameHeadAndTailWithDifferentMiddleIsNotDuplicate() throws IOException {
+        Path a = write("a.bin", content);
+        write("b.bin", middleChanged());
+        Path c = write("c.bin", content);
+
+        Report report = new DuplicateFileFinder().parallelism(2).find(root);
+        assertEquals(1, report.getGroups().size());
+        assertEquals(Arrays.asList(a, c), report.getGroups().get(0).getPaths());
+        assertEquals(FILE_SIZE, report.getReclaimableBytes());
+        //三个文件的部分摘要相同, 都需要完整摘要
+        assertEquals(3, report.getHashedFiles());
+    }
+
+    @Test
+    public void hardLinksAreCountedOnce() throws IOException {
+        Path a = write("a.bin", content);
+        try {
+            Files.createLink(root.resolve("link.bin"), a);
+        } catch (UnsupportedOperationException e) {
+            Assume.assumeNoException(e);
+        }
+        Report report = new DuplicateFileFinder().find(root);
+        assertEquals(2, report.getScannedFiles());
+        assertEquals(0, report.getGroups().size());
+
+        Path c = write("c.bin", content);
+        report = new DuplicateFileFinder().find(root);
+        assertEquals(1, report.getGroups().size());
+        assertEquals(Arrays.asList(a, c), report.getGroups().get(0).getPaths());
+        assertEquals(FILE_SIZE, report.getReclaimableBytes());
+    }
+
+    @Test
+    public void unchangedFilesAreNotHashedAgain() throws IOException {
+        Path indexFile = folder.getRoot().toPath().resolve("hashes.tsv");
+        write("a.bin", content);
+        write("b.bin", middleChanged());
+        write("c.bin", content);
+
+        Report first = new DuplicateFileFinder().index(indexFile).find(root);
+        assertEquals(3, first.getHashedFiles());
+        assertEquals(0, first.getIndexHits());
+
+        Report second = new DuplicateFileFinder().index(indexFile).find(root);
+        assertEquals(0, second.getHashedFiles());
+        assertEquals(0, second.getHashedBytes());
+        assertEquals(3, second.getIndexHits());
+        assertEquals(first.getGroups().get(0).getPaths(), second.getGroups().get(0).getPaths());
+        assertEquals(first.getGroups().get(0).getHash(), second.getGroups().get(0).getHash());
+    }
+
+    @Test
+    public void newCopyIsMatchedAgainstIndexedHash() throws IOException {
+        Path indexFile = folder.getRoot().toPath().resolve("hashes.tsv");
+        Path a = write("a.bin", content);
+        Path c = write("c.bin", content);
+        new DuplicateFileFinder().index(indexFile).find(root);
+
+        //新文件的部分摘要没有同组的文件, 但同大小的文件有索引中的完整摘要
+        Path d = write("sub/d.bin", content);
+        Report report = new DuplicateFileFinder().index(indexFile).find(root);
+        assertEquals(2, report.getIndexHits());
+        assertEquals(1, report.getHashedFiles());
+        assertEquals(1, report.getGroups().size());
+        assertEquals(Arrays.asList(a, c, d), report.getGroups().get(0).getPaths());
+    }
+
+    /**
+     * 与content首尾相同, 只有中间一个字节不同
+     */
+    private byte[] middleChanged() {
+        byte[] changed = content.clone();
+        changed[FILE_SIZE / 2]++;
+        return changed;
+    }
+
+    private Path write(String name, byte[] bytes) throws IOException {
+        Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, bytes).toAbsolutePath().normalize();
+    }
+}
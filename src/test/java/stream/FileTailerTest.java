@@ -0,0 +1,118 @@
+package stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * FileTailer在文件增长、截断时的投递测试: 每行恰好投递一次
+ */
+public class FileTailerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendDuringPollIsNotMistakenForTruncation() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("app.log");
+        write(file, "a\nb\nc\n");
+        List<String> seen = new ArrayList<>();
+        AtomicBoolean appended = new AtomicBoolean();
+        FileTailer tailer = new FileTailer(file).batchSize(1);
+        int lines = tailer.poll(batch -> {
+            seen.addAll(batch);
+            //读取期间文件继续增长
+            if (appended.compareAndSet(false, true)) {
+                append(file, "d\ne\n");
+            }
+        });
+        tailer.poll(seen::addAll);
+        tailer.close();
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), seen);
+        assertEquals(5, lines);
+        assertEquals(10, tailer.getOffset());
+    }
+
+    @Test
+    public void concurrentAppendsAreDeliveredExactlyOnce() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("app.log");
+        write(file, "");
+        int total = 20000;
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < total; i += 10) {
+                    StringBuilder chunk = new StringBuilder();
+                    for (int j = i; j < i + 10; j++) {
+                        chunk.append(j).append('\n');
+                    }
+                    append(file, chunk.toString());
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        List<String> seen = new ArrayList<>();
+        FileTailer tailer = new FileTailer(file).batchSize(7);
+        writer.start();
+        while (writer.isAlive()) {
+            tailer.poll(seen::addAll);
+        }
+        writer.join();
+        tailer.poll(seen::addAll);
+        tailer.close();
+        assertEquals(total, seen.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals(String.valueOf(i), seen.get(i));
+        }
+    }
+
+    @Test
+    public void truncatedFileIsReadFromStart() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("app.log");
+        write(file, "first\nsecond\n");
+        List<String> seen = new ArrayList<>();
+        FileTailer tailer = new FileTailer(file);
+        tailer.poll(seen::addAll);
+        write(file, "x\n");
+        tailer.poll(seen::addAll);
+        tailer.close();
+        assertEquals(Arrays.asList("first", "second", "x"), seen);
+        assertEquals(2, tailer.getOffset());
+    }
+
+    @Test
+    public void charsetWithoutSingleByteNewlineIsRejected() {
+        FileTailer tailer = new FileTailer(folder.getRoot().toPath().resolve("app.log"));
+        tailer.charset(StandardCharsets.ISO_8859_1).charset(Charset.forName("GBK"));
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_16, StandardCharsets.UTF_16LE, Charset.forName("UTF-32"))) {
+            try {
+                tailer.charset(charset);
+                fail(charset.name());
+            } catch (IllegalArgumentException expected) {
+                //按字节切分行会得到错误的结果
+            }
+        }
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
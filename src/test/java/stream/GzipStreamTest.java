@@ -0,0 +1,166 @@
+package stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * ParallelGzipOutputStream与MultiMemberGzipInputStream的往返测试, 以JDK的GZIPInputStream/GZIPOutputStream为准
+ */
+public class GzipStreamTest {
+
+    private static final int BLOCK_SIZE = 32 * 1024;
+
+    @Test
+    public void parallelOutputIsDecodedByGzipInputStream() throws IOException {
+        int[] sizes = {0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 5 * 1024 * 1024 + 17};
+        for (int size : sizes) {
+            byte[] data = data(size, size);
+            assertArrayEquals("size " + size, data, gunzip(parallelGzip(data, 0)));
+            //每写入一部分flush一次, flush会提前结束当前块
+            assertArrayEquals("size " + size + " with flush", data, gunzip(parallelGzip(data, 10007)));
+        }
+    }
+
+    @Test
+    public void flushAfterFinishOnlyFlushesUnderlyingStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(bytes, BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, 2);
+        Writer writer = new OutputStreamWriter(gzip, StandardCharsets.UTF_8);
+        writer.write("hello");
+        writer.flush();
+        gzip.finish();
+        int length = bytes.size();
+        //包装流关闭时先flush
+        writer.close();
+        assertEquals(length, bytes.size());
+        assertEquals("hello", new String(gunzip(bytes.toByteArray()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void concatenatedMembersAreReadInOrder() throws IOException {
+        byte[] first = data(100000, 1);
+        byte[] second = new byte[0];
+        byte[] third = data(70000, 3);
+        byte[] gzip = concat(gzip(first), parallelGzip(second, 0), gzip(third));
+
+        MultiMemberGzipInputStream in = new MultiMemberGzipInputStream(new ByteArrayInputStream(gzip), 512);
+        assertArrayEquals(concat(first, second, third), readAll(in));
+        assertEquals(3, in.getMembers());
+        in.close();
+    }
+
+    @Test
+    public void trailingZeroPaddingIsIgnored() throws IOException {
+        byte[] data = data(50000, 5);
+        byte[] gzip = concat(gzip(data), parallelGzip(data, 0), new byte[4096]);
+
+        MultiMemberGzipInputStream in = new MultiMemberGzipInputStream(new ByteArrayInputStream(gzip));
+        assertArrayEquals(concat(data, data), readAll(in));
+        assertEquals(2, in.getMembers());
+        in.close();
+    }
+
+    @Test
+    public void truncatedMemberThrowsEOFException() throws IOException {
+        byte[] data = data(200000, 7);
+        byte[] first = gzip(data);
+        byte[] second = gzip(data);
+        //分别截断在第二个成员的头部、压缩数据与尾部中
+        int[] cuts = {first.length + 5, first.length + second.length / 2, first.length + second.length - 3};
+        for (int cut : cuts) {
+            byte[] truncated = Arrays.copyOf(concat(first, second), cut);
+            try (InputStream in = new MultiMemberGzipInputStream(new ByteArrayInputStream(truncated))) {
+                readAll(in);
+                fail("cut " + cut);
+            } catch (EOFException expected) {
+                //数据不完整
+            }
+        }
+    }
+
+    /**
+     * 可压缩的伪随机数据: 随机选取的单词序列
+     */
+    private static byte[] data(int size, long seed) {
+        String[] words = {"alpha ", "beta ", "gamma ", "delta\n", "epsilon ", "zeta ", "eta\n"};
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        int i = 0;
+        while (i < size) {
+            byte[] word = words[random.nextInt(words.length)].getBytes(StandardCharsets.US_ASCII);
+            int n = Math.min(word.length, size - i);
+            System.arraycopy(word, 0, data, i, n);
+            i += n;
+            if (i < size && random.nextInt(16) == 0) {
+                data[i++] = (byte) random.nextInt(256);
+            }
+        }
+        return data;
+    }
+
+    private static byte[] parallelGzip(byte[] data, int flushInterval) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(bytes, BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, 4)) {
+            int step = flushInterval > 0 ? flushInterval : Math.max(data.length, 1);
+            for (int i = 0; i < data.length; i += step) {
+                out.write(data, i, Math.min(step, data.length - i));
+                if (flushInterval > 0) {
+                    out.flush();
+                }
+            }
+            assertEquals(data.length, out.getTotalIn());
+            out.finish();
+            assertEquals(bytes.size(), out.getTotalOut());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return readAll(in);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            bytes.write(part, 0, part.length);
+        }
+        return bytes.toByteArray();
+    }
+}
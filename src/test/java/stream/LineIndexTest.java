@@ -0,0 +1,184 @@
+package stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * LineIndex与Files.readAllLines的对比测试, 包括多分段合并与索引文件的保存、读取与重建
+ */
+public class LineIndexTest {
+
+    /**
+     * 与LineIndex的并行扫描分段大小一致
+     */
+    private static final int SCAN_CHUNK_SIZE = 32 << 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void emptyFile() throws IOException {
+        assertSameLines(write(""));
+    }
+
+    @Test
+    public void onlyNewline() throws IOException {
+        assertSameLines(write("\n"));
+    }
+
+    @Test
+    public void noTrailingNewline() throws IOException {
+        assertSameLines(write("first\nsecond\nthird"));
+        assertSameLines(write("x"));
+    }
+
+    @Test
+    public void crlfLineEndings() throws IOException {
+        assertSameLines(write("first\r\nsecond\r\n\r\nlast\r\n"));
+    }
+
+    @Test
+    public void consecutiveEmptyLines() throws IOException {
+        StringBuilder text = new StringBuilder();
+        //跨越多个检查点的空行与长短不一的行
+        for (int i = 0; i < 1000; i++) {
+            text.append(i % 3 == 0 ? "" : "line" + i).append(i % 7 == 0 ? "\n\n\n" : "\n");
+        }
+        text.append(new String(new char[300]).replace('\0', 'x')).append('\n');
+        assertSameLines(write(text.toString()));
+    }
+
+    @Test
+    public void multipleScanChunksAreMerged() throws IOException {
+        Random random = new Random(64L);
+        byte[] bytes = new byte[SCAN_CHUNK_SIZE * 2 + 12345];
+        int i = 0;
+        while (i < bytes.length) {
+            int length = random.nextInt(10) == 0 ? random.nextInt(2000) : random.nextInt(40);
+            for (int end = Math.min(bytes.length, i + length); i < end; i++) {
+                bytes[i] = (byte) ('a' + random.nextInt(26));
+            }
+            if (i < bytes.length) {
+                bytes[i++] = '\n';
+            }
+        }
+        //分段的边界前后正好是换行符, 以及跨越边界的空行
+        bytes[SCAN_CHUNK_SIZE - 1] = '\n';
+        bytes[SCAN_CHUNK_SIZE] = '\n';
+        bytes[SCAN_CHUNK_SIZE * 2] = '\n';
+        Path file = folder.getRoot().toPath().resolve("big.txt");
+        Files.write(file, bytes);
+        List<String> expected = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        try (LineIndex index = LineIndex.build(file, 3)) {
+            assertLines(expected, index);
+        }
+    }
+
+    @Test
+    public void savedIndexIsLoaded() throws IOException {
+        Path file = write("a\nbb\n\nccc\r\nd");
+        Path indexFile = indexFile(file);
+        try (LineIndex index = LineIndex.open(file)) {
+            assertNull(index.getSaveFailure());
+        }
+        try (LineIndex index = LineIndex.load(file, indexFile)) {
+            assertNotNull(index);
+            assertLines(Files.readAllLines(file), index);
+        }
+    }
+
+    @Test
+    public void staleIndexIsRebuilt() throws IOException {
+        Path file = write("a\nb\n");
+        Path indexFile = indexFile(file);
+        LineIndex.open(file).close();
+
+        //大小变化
+        Files.write(file, "c\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNull(LineIndex.load(file, indexFile));
+        assertSameLines(file);
+
+        //大小不变, 修改时间变化
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.write(file, "x\ny\nz\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 10000));
+        assertNull(LineIndex.load(file, indexFile));
+        assertSameLines(file);
+    }
+
+    @Test
+    public void damagedIndexIsRebuilt() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("line").append(i).append('\n');
+        }
+        Path file = write(text.toString());
+        Path indexFile = indexFile(file);
+        //检查点数、差值字节数、块内偏移分别改为不正确的值
+        int[][] damages = {{32, -1}, {32, 1}, {36, -5}, {36, 1 << 30}, {40 + 4 * 8, -1}, {40 + 4 * 8 + 4, 1 << 20}};
+        for (int[] damage : damages) {
+            LineIndex.open(file).close();
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                ByteBuffer value = ByteBuffer.allocate(4).putInt(0, damage[1]);
+                channel.write(value, damage[0]);
+            }
+            assertNull(LineIndex.load(file, indexFile));
+            assertSameLines(file);
+        }
+    }
+
+    @Test
+    public void saveFailureIsReported() throws IOException {
+        Path file = write("a\nb\n");
+        //索引文件的位置是一个非空目录, 无法替换
+        Path indexFile = Files.createDirectory(indexFile(file));
+        Files.createFile(indexFile.resolve("occupied"));
+        try (LineIndex index = LineIndex.open(file)) {
+            assertNotNull(index.getSaveFailure());
+            assertLines(Files.readAllLines(file), index);
+        }
+    }
+
+    private Path write(String text) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("text.txt");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + LineIndex.INDEX_SUFFIX);
+    }
+
+    /**
+     * 重新打开索引, 与readAllLines逐行比较
+     */
+    private static void assertSameLines(Path file) throws IOException {
+        try (LineIndex index = LineIndex.open(file)) {
+            assertNull(index.getSaveFailure());
+            assertLines(Files.readAllLines(file), index);
+        }
+    }
+
+    private static void assertLines(List<String> expected, LineIndex index) throws IOException {
+        assertEquals(expected.size(), index.getLineCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("line " + i, expected.get(i), index.getLine(i));
+        }
+    }
+}
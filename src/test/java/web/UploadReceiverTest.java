@@ -0,0 +1,171 @@
+package web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * UploadReceiver的续传约定测试: 偏移检查、重传截断、完成校验与清理
+ */
+public class UploadReceiverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UploadReceiver receiver;
+
+    @Before
+    public void createReceiver() throws IOException {
+        receiver = new UploadReceiver(folder.newFolder("uploads"));
+    }
+
+    @Test
+    public void resumesFromOffsetAfterPartialChunk() throws IOException {
+        //第一个分块只传了一部分就中断
+        InputStream interrupted = new InputStream() {
+            private int sent;
+
+            @Override
+            public int read() throws IOException {
+                if (sent == 5) {
+                    throw new IOException("连接中断");
+                }
+                return "hello world".charAt(sent++);
+            }
+        };
+        try {
+            receiver.receive("u1", 0, 11, interrupted);
+            fail();
+        } catch (IOException expected) {
+            //续传从已接收的长度开始
+        }
+        assertEquals(5, receiver.getOffset("u1"));
+        assertEquals(11, receiver.receive("u1", 5, 6, stream(" world")));
+        assertEquals(11, receiver.getOffset("u1"));
+
+        File target = receiver.complete("u1", 11, new File(folder.getRoot(), "out/hello.txt"));
+        assertEquals("hello world", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+        assertEquals(0, receiver.getOffset("u1"));
+    }
+
+    @Test
+    public void rejectsGapOffset() throws IOException {
+        receiver.receive("u1", 0, 3, stream("abc"));
+        try {
+            receiver.receive("u1", 4, 3, stream("def"));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(3, receiver.getOffset("u1"));
+        }
+        //首个请求的偏移不为0时不留下.part文件
+        try {
+            receiver.receive("u2", 10, 3, stream("xyz"));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertFalse(new File(folder.getRoot(), "uploads/u2.part").exists());
+        }
+        //被拒绝的请求不占用上传ID
+        assertEquals(6, receiver.receive("u1", 3, 3, stream("def")));
+    }
+
+    @Test
+    public void overlappingOffsetTruncatesAndRewrites() throws IOException {
+        receiver.receive("u1", 0, 6, stream("abcdef"));
+        assertEquals(5, receiver.receive("u1", 2, 3, stream("XYZ")));
+        File target = receiver.complete("u1", -1, new File(folder.getRoot(), "out.txt"));
+        assertArrayEquals("abXYZ".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void completeRejectsSizeMismatch() throws IOException {
+        receiver.receive("u1", 0, 3, stream("abc"));
+        File target = new File(folder.getRoot(), "out.txt");
+        try {
+            receiver.complete("u1", 4, target);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertFalse(target.exists());
+            assertEquals(3, receiver.getOffset("u1"));
+        }
+        receiver.complete("u1", 3, target);
+        assertTrue(target.isFile());
+    }
+
+    @Test
+    public void cleanAbandonedSkipsUploadInProgress() throws Exception {
+        receiver.receive("idle", 0, 1, stream("a"));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        //写入一个字节后阻塞的请求
+        InputStream blocking = new InputStream() {
+            private int sent;
+
+            @Override
+            public int read() throws IOException {
+                if (sent == 1) {
+                    started.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return -1;
+                }
+                sent++;
+                return 'b';
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int value = read();
+                if (value == -1) {
+                    return -1;
+                }
+                b[off] = (byte) value;
+                return 1;
+            }
+        };
+        AtomicReference<Object> result = new AtomicReference<>();
+        Thread upload = new Thread(() -> {
+            try {
+                result.set(receiver.receive("busy", 0, -1, blocking));
+            } catch (IOException | RuntimeException e) {
+                result.set(e);
+            }
+        });
+        upload.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        //截止时间在未来，所有未在写入的.part文件都视为已放弃
+        assertEquals(1, receiver.cleanAbandoned(-60000));
+        assertEquals(0, receiver.getOffset("idle"));
+        assertTrue(new File(folder.getRoot(), "uploads/busy.part").exists());
+
+        resume.countDown();
+        upload.join();
+        assertEquals(1L, result.get());
+        assertEquals(1, receiver.getOffset("busy"));
+        assertEquals(1, receiver.cleanAbandoned(-60000));
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}